@@ -2,8 +2,10 @@ package org.skypro.hogwarts;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class HogwartsApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(HogwartsApplication.class, args);
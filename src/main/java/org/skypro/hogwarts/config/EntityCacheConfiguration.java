@@ -0,0 +1,78 @@
+package org.skypro.hogwarts.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.skypro.hogwarts.model.CacheRegions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Регионы кэша второго уровня Hibernate на Caffeine через JCache. Размер и время жизни каждого региона
+ * задаются свойствами entity-cache.&lt;регион&gt;.max-entries и entity-cache.&lt;регион&gt;.ttl.
+ */
+@Configuration
+public class EntityCacheConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(EntityCacheConfiguration.class);
+
+    public static final String QUERIES = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+    public static final String TIMESTAMPS = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+    // Регион -> ключ свойств с его настройками
+    private static final Map<String, String> REGIONS = new LinkedHashMap<>();
+
+    static {
+        REGIONS.put(CacheRegions.FACULTIES, "faculties");
+        REGIONS.put(CacheRegions.STUDENTS, "students");
+        REGIONS.put(CacheRegions.FACULTY_STUDENTS, "faculty-students");
+        REGIONS.put(QUERIES, "queries");
+    }
+
+    public static Iterable<String> regionNames() {
+        return REGIONS.keySet();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(Environment environment) {
+        // Свой менеджер на каждый контекст: иначе два контекста в одной JVM (например, в тестах) делили бы регионы
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hogwarts-entity-cache-" + UUID.randomUUID()),
+                        EntityCacheConfiguration.class.getClassLoader());
+        REGIONS.forEach((region, key) -> {
+            long maxEntries = environment.getProperty("entity-cache." + key + ".max-entries", Long.class, 10_000L);
+            Duration ttl = environment.getProperty("entity-cache." + key + ".ttl", Duration.class, Duration.ofMinutes(10));
+            cacheManager.createCache(region, configuration(OptionalLong.of(maxEntries), OptionalLong.of(ttl.toNanos())));
+            logger.info("Регион кэша сущностей {}: максимум записей={}, время жизни={}", region, maxEntries, ttl);
+        });
+        // Метки изменения таблиц нельзя вытеснять: без метки Hibernate считает закэшированный результат запроса свежим
+        cacheManager.createCache(TIMESTAMPS, configuration(OptionalLong.empty(), OptionalLong.empty()));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration(OptionalLong maxEntries, OptionalLong ttlNanos) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxEntries);
+        configuration.setExpireAfterWrite(ttlNanos);
+        // Hibernate сам разбирает сущности на значения полей, поэтому копировать записи при каждом чтении незачем
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
@@ -1,23 +1,42 @@
 package org.skypro.hogwarts.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.skypro.hogwarts.dto.AvatarCacheStats;
+import org.skypro.hogwarts.dto.AvatarImportReport;
+import org.skypro.hogwarts.dto.AvatarInfo;
+import org.skypro.hogwarts.dto.AvatarReconcilerStats;
+import org.skypro.hogwarts.dto.AvatarUploadRequest;
+import org.skypro.hogwarts.dto.AvatarUploadStatus;
 import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.AvatarData;
+import org.skypro.hogwarts.service.AvatarBulkImportService;
 import org.skypro.hogwarts.service.AvatarService;
+import org.skypro.hogwarts.service.AvatarUploadService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/avatar")
 public class AvatarController {
     private final AvatarService avatarService;
+    private final AvatarUploadService avatarUploadService;
+    private final AvatarBulkImportService avatarBulkImportService;
 
     @Autowired
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService, AvatarUploadService avatarUploadService,
+                            AvatarBulkImportService avatarBulkImportService) {
         this.avatarService = avatarService;
+        this.avatarUploadService = avatarUploadService;
+        this.avatarBulkImportService = avatarBulkImportService;
     }
 
     @PostMapping(value = "/{studentId}/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -29,50 +48,192 @@ public class AvatarController {
         return ResponseEntity.ok(avatar.getId());
     }
 
+    @PostMapping(value = "/bulk", consumes = "application/zip")
+    public AvatarImportReport importArchive(HttpServletRequest request) throws IOException {
+        return avatarBulkImportService.importArchive(request.getInputStream());
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public AvatarImportReport importFiles(@RequestParam List<MultipartFile> files) throws IOException {
+        return avatarBulkImportService.importFiles(files);
+    }
+
+    @PostMapping("/uploads")
+    @ResponseStatus(HttpStatus.CREATED)
+    public AvatarUploadStatus startUpload(@RequestBody AvatarUploadRequest request) throws IOException {
+        return avatarUploadService.startUpload(request);
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<AvatarUploadStatus> getUploadStatus(@PathVariable String uploadId) {
+        return avatarUploadService.getStatus(uploadId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public AvatarUploadStatus uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request) throws IOException {
+        return avatarUploadService.writeChunk(uploadId, offset, request.getInputStream());
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<Long> completeUpload(@PathVariable String uploadId) throws IOException {
+        Avatar avatar = avatarUploadService.completeUpload(uploadId);
+        return ResponseEntity.ok(avatar.getId());
+    }
+
     @GetMapping("/{id}/from-db")
-    public ResponseEntity<byte[]> getAvatarFromDb(@PathVariable Long id) {
-        Optional<Avatar> avatarOptional = avatarService.getAvatarFromDb(id);
-        if (avatarOptional.isPresent()) {
-            Avatar avatar = avatarOptional.get();
-            HttpHeaders headers = prepareHeaders(avatar);
-            return new ResponseEntity<>(avatar.getData(), headers, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> getAvatarFromDb(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader HttpHeaders requestHeaders) throws IOException {
+
+        Optional<AvatarData> dataOptional = avatarService.getAvatarFromDb(id, size);
+        if (dataOptional.isPresent()) {
+            return serveAvatar(dataOptional.get(), requestHeaders);
         }
         return ResponseEntity.notFound().build();
     }
 
     @GetMapping("/{studentId}/from-file")
-    public ResponseEntity<byte[]> getAvatarFromFile(@PathVariable Long studentId) throws IOException {
-        byte[] imageData = avatarService.getAvatarImageFromFile(studentId);
-        Optional<Avatar> avatarOptional = avatarService.getAvatarByStudentId(studentId);
-
-        if (avatarOptional.isPresent()) {
-            Avatar avatar = avatarOptional.get();
-            HttpHeaders headers = prepareHeaders(avatar);
-            return new ResponseEntity<>(imageData, headers, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> getAvatarFromFile(
+            @PathVariable Long studentId,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader HttpHeaders requestHeaders) throws IOException {
+
+        Optional<AvatarData> dataOptional = avatarService.getAvatarFromFile(studentId, size);
+        if (dataOptional.isPresent()) {
+            return serveAvatar(dataOptional.get(), requestHeaders);
         }
         return ResponseEntity.notFound().build();
     }
 
     @GetMapping("/student/{studentId}")
-    public ResponseEntity<Avatar> getAvatarInfo(@PathVariable Long studentId) {
-        Optional<Avatar> avatarOptional = avatarService.getAvatarByStudentId(studentId);
+    public ResponseEntity<AvatarInfo> getAvatarInfo(@PathVariable Long studentId) {
+        Optional<AvatarInfo> avatarOptional = avatarService.getAvatarInfoByStudentId(studentId);
         return avatarOptional.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
 
     @GetMapping
-    public Page<Avatar> getAllAvatars(
+    public Page<AvatarInfo> getAllAvatars(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         return avatarService.getAllAvatars(page, size);
     }
 
+    @GetMapping("/cache-stats")
+    public AvatarCacheStats getCacheStats() {
+        return avatarService.getCacheStats();
+    }
+
+    @GetMapping("/reconciler-stats")
+    public ResponseEntity<AvatarReconcilerStats> getReconcilerStats() {
+        return avatarService.getReconcilerStats()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
 
-    private HttpHeaders prepareHeaders(Avatar avatar) {
+    private ResponseEntity<StreamingResponseBody> serveAvatar(AvatarData avatarData, HttpHeaders requestHeaders)
+            throws IOException {
+        Resource resource = avatarData.resource();
+        HttpHeaders headers = prepareHeaders(avatarData);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (isNotModified(requestHeaders, headers)) {
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        long length = resource.contentLength();
+        HttpRange range = resolveRange(requestHeaders, headers);
+        if (range == null) {
+            headers.setContentLength(length);
+            return new ResponseEntity<>(
+                    out -> avatarService.transferAvatar(resource, 0, length, out),
+                    headers, HttpStatus.OK);
+        }
+
+        long start = range.getRangeStart(length);
+        long end = range.getRangeEnd(length);
+        if (start >= length || start > end) {
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+
+        long count = end - start + 1;
+        headers.setContentLength(count);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        return new ResponseEntity<>(
+                out -> avatarService.transferAvatar(resource, start, count, out),
+                headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    private boolean isNotModified(HttpHeaders requestHeaders, HttpHeaders responseHeaders) {
+        // If-None-Match сравнивается слабо и имеет приоритет над If-Modified-Since (RFC 9110, 13.2.2)
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            String etag = responseHeaders.getETag();
+            return etag != null && ifNoneMatch.stream()
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag));
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        long lastModified = responseHeaders.getLastModified();
+        return ifModifiedSince != -1 && lastModified != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private HttpRange resolveRange(HttpHeaders requestHeaders, HttpHeaders responseHeaders) {
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // Несколько диапазонов сразу не поддерживаем и отдаем файл целиком, как разрешает RFC 9110
+        if (ranges.size() != 1 || !isIfRangeSatisfied(requestHeaders, responseHeaders)) {
+            return null;
+        }
+        return ranges.get(0);
+    }
+
+    private boolean isIfRangeSatisfied(HttpHeaders requestHeaders, HttpHeaders responseHeaders) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(responseHeaders.getETag());
+        }
+        try {
+            return requestHeaders.getFirstDate(HttpHeaders.IF_RANGE) == responseHeaders.getLastModified();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private HttpHeaders prepareHeaders(AvatarData avatarData) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(avatar.getMediaType()));
-        headers.setContentLength(avatar.getFileSize());
+        headers.setContentType(MediaType.parseMediaType(avatarData.mediaType()));
+        headers.setContentLength(avatarData.avatar().getFileSize());
+        if (avatarData.contentTag() != null) {
+            headers.setETag("\"" + avatarData.contentTag() + "\"");
+        }
+        Instant updatedAt = avatarData.avatar().getUpdatedAt();
+        if (updatedAt != null) {
+            headers.setLastModified(updatedAt);
+        } else if (avatarData.resource().isFile()) {
+            try {
+                headers.setLastModified(avatarData.resource().lastModified());
+            } catch (IOException e) {
+                // Без даты изменения клиент будет проверять актуальность только по ETag
+            }
+        }
         return headers;
     }
 }
\ No newline at end of file
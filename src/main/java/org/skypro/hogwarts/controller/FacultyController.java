@@ -1,9 +1,12 @@
 package org.skypro.hogwarts.controller;
 
+import org.skypro.hogwarts.dto.FacultyResponse;
+import org.skypro.hogwarts.dto.KeysetPage;
+import org.skypro.hogwarts.dto.StudentResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.skypro.hogwarts.model.Faculty;
-import org.skypro.hogwarts.model.Student;
 import org.skypro.hogwarts.service.FacultyService;
 import org.springframework.web.server.ResponseStatusException;
 import java.util.List;
@@ -19,26 +22,26 @@ public class FacultyController {
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Faculty createFaculty(@RequestBody Faculty faculty) {
-        return facultyService.createFaculty(faculty);
+    public FacultyResponse createFaculty(@RequestBody Faculty faculty) {
+        return FacultyResponse.from(facultyService.createFaculty(faculty));
     }
 
     @GetMapping("/{id}")
-    public Faculty getFaculty(@PathVariable Long id) {
+    public FacultyResponse getFaculty(@PathVariable Long id) {
         Faculty faculty = facultyService.getFacultyById(id);
         if (faculty == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Faculty not found");
         }
-        return faculty;
+        return FacultyResponse.from(faculty);
     }
 
     @PutMapping("/{id}")
-    public Faculty updateFaculty(@PathVariable Long id, @RequestBody Faculty faculty) {
+    public FacultyResponse updateFaculty(@PathVariable Long id, @RequestBody Faculty faculty) {
         Faculty updatedFaculty = facultyService.updateFaculty(id, faculty);
         if (updatedFaculty == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Faculty not found");
         }
-        return updatedFaculty;
+        return FacultyResponse.from(updatedFaculty);
     }
 
     @DeleteMapping("/{id}")
@@ -48,23 +51,41 @@ public class FacultyController {
     }
 
     @GetMapping("/by-color")
-    public List<Faculty> getFacultiesByColor(@RequestParam String color) {
-        return facultyService.getFacultiesByColor(color);
+    public ResponseEntity<List<FacultyResponse>> getFacultiesByColor(
+            @RequestParam String color,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(facultyService.getFacultiesByColor(color, after, limit).map(FacultyResponse::from));
     }
 
     @GetMapping("/search")
-    public List<Faculty> findFacultiesByNameOrColor(@RequestParam String search) {
-        return facultyService.findFacultiesByNameOrColor(search);
+    public ResponseEntity<List<FacultyResponse>> findFacultiesByNameOrColor(
+            @RequestParam String search,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(facultyService.findFacultiesByNameOrColor(search, after, limit).map(FacultyResponse::from));
     }
 
     @GetMapping("/{id}/students")
-    public List<Student> getFacultyStudents(@PathVariable Long id) {
-        return facultyService.getFacultyStudents(id);
+    public ResponseEntity<List<StudentResponse>> getFacultyStudents(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(facultyService.getFacultyStudents(id, FacultyService.RosterSort.from(sort), after, limit)
+                .map(StudentResponse::from));
+    }
+
+    @GetMapping("/{id}/students/count")
+    public long countFacultyStudents(@PathVariable Long id) {
+        return facultyService.countFacultyStudents(id);
     }
 
     @GetMapping
-    public List<Faculty> getAllFaculties() {
-        return facultyService.getAllFaculties();
+    public ResponseEntity<List<FacultyResponse>> getAllFaculties(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(facultyService.getAllFaculties(after, limit).map(FacultyResponse::from));
     }
 
 
@@ -72,4 +93,12 @@ public class FacultyController {
     public String getLongestFacultyName() {
         return facultyService.getLongestFacultyName();
     }
+
+    private static <T> ResponseEntity<List<T>> toResponse(KeysetPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package org.skypro.hogwarts.controller;
 
+import org.skypro.hogwarts.dto.EntityCacheStats;
+import org.skypro.hogwarts.service.EntityCacheService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import java.util.List;
 
 @RestController
 public class InfoController {
@@ -10,8 +13,19 @@ public class InfoController {
     @Value("${server.port}")
     private int serverPort;
 
+    private final EntityCacheService entityCacheService;
+
+    public InfoController(EntityCacheService entityCacheService) {
+        this.entityCacheService = entityCacheService;
+    }
+
     @GetMapping("/port")
     public int getServerPort() {
         return serverPort;
     }
+
+    @GetMapping("/entity-cache-stats")
+    public List<EntityCacheStats> getEntityCacheStats() {
+        return entityCacheService.getStats();
+    }
 }
\ No newline at end of file
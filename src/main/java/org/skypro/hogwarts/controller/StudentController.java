@@ -1,44 +1,75 @@
 package org.skypro.hogwarts.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.skypro.hogwarts.dto.FacultyResponse;
+import org.skypro.hogwarts.dto.KeysetPage;
+import org.skypro.hogwarts.dto.StudentImportReport;
+import org.skypro.hogwarts.dto.StudentName;
+import org.skypro.hogwarts.dto.StudentResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.skypro.hogwarts.model.Faculty;
 import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.service.StudentExportService;
+import org.skypro.hogwarts.service.StudentImportService;
 import org.skypro.hogwarts.service.StudentService;
 import org.springframework.web.server.ResponseStatusException;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/student")
 public class StudentController {
     private final StudentService studentService;
+    private final StudentExportService studentExportService;
+    private final StudentImportService studentImportService;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService,
+                             StudentExportService studentExportService,
+                             StudentImportService studentImportService) {
         this.studentService = studentService;
+        this.studentExportService = studentExportService;
+        this.studentImportService = studentImportService;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Student createStudent(@RequestBody Student student) {
-        return studentService.createStudent(student);
+    public StudentResponse createStudent(@RequestBody Student student) {
+        return StudentResponse.from(studentService.createStudent(student));
+    }
+
+    // Тело читается потоком, а не разбирается в список целиком
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public StudentImportReport importStudentsJson(HttpServletRequest request) throws IOException {
+        return studentImportService.importJson(request.getInputStream());
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public StudentImportReport importStudentsCsv(HttpServletRequest request) throws IOException {
+        return studentImportService.importCsv(request.getInputStream());
     }
 
     @GetMapping("/{id}")
-    public Student getStudent(@PathVariable Long id) {
+    public StudentResponse getStudent(@PathVariable Long id) {
         Student student = studentService.getStudentById(id);
         if (student == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Student not found");
         }
-        return student;
+        return StudentResponse.from(student);
     }
 
     @PutMapping("/{id}")
-    public Student updateStudent(@PathVariable Long id, @RequestBody Student student) {
+    public StudentResponse updateStudent(@PathVariable Long id, @RequestBody Student student) {
         Student updatedStudent = studentService.updateStudent(id, student);
         if (updatedStudent == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Student not found");
         }
-        return updatedStudent;
+        return StudentResponse.from(updatedStudent);
     }
 
     @DeleteMapping("/{id}")
@@ -48,44 +79,79 @@ public class StudentController {
     }
 
     @GetMapping("/by-age")
-    public List<Student> getStudentsByAge(@RequestParam int age) {
-        return studentService.getStudentsByAge(age);
+    public ResponseEntity<List<StudentResponse>> getStudentsByAge(
+            @RequestParam int age,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(studentService.getStudentsByAge(age, after, limit).map(StudentResponse::from));
     }
 
     @GetMapping("/by-age-between")
-    public List<Student> getStudentsByAgeBetween(
+    public ResponseEntity<List<StudentResponse>> getStudentsByAgeBetween(
             @RequestParam int min,
-            @RequestParam int max) {
-        return studentService.getStudentsByAgeBetween(min, max);
+            @RequestParam int max,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(studentService.getStudentsByAgeBetween(min, max, after, limit).map(StudentResponse::from));
     }
 
     @GetMapping("/by-name")
-    public List<Student> getStudentsByNameContaining(@RequestParam String name) {
-        return studentService.getStudentsByNameContaining(name);
+    public ResponseEntity<List<StudentResponse>> getStudentsByNameContaining(
+            @RequestParam String name,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(studentService.getStudentsByNameContaining(name, after, limit).map(StudentResponse::from));
+    }
+
+    // Ответ из индекса имен в памяти, без запроса к БД на каждое нажатие клавиши
+    @GetMapping("/autocomplete")
+    public List<StudentName> autocompleteStudentNames(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return studentService.autocompleteStudentNames(prefix, limit);
     }
 
     @GetMapping("/by-age-less-than")
-    public List<Student> getStudentsWithAgeLessThan(@RequestParam int age) {
-        return studentService.getStudentsWithAgeLessThan(age);
+    public ResponseEntity<List<StudentResponse>> getStudentsWithAgeLessThan(
+            @RequestParam int age,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(studentService.getStudentsWithAgeLessThan(age, after, limit).map(StudentResponse::from));
     }
 
     @GetMapping("/ordered-by-age")
-    public List<Student> getStudentsOrderedByAge() {
-        return studentService.getStudentsOrderedByAge();
+    public ResponseEntity<List<StudentResponse>> getStudentsOrderedByAge(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(studentService.getStudentsOrderedByAge(after, limit).map(StudentResponse::from));
     }
 
     @GetMapping("/{id}/faculty")
-    public Faculty getStudentFaculty(@PathVariable Long id) {
+    public FacultyResponse getStudentFaculty(@PathVariable Long id) {
         Faculty faculty = studentService.getStudentFaculty(id);
         if (faculty == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Faculty not found for student");
         }
-        return faculty;
+        return FacultyResponse.from(faculty);
     }
 
     @GetMapping
-    public List<Student> getAllStudents() {
-        return studentService.getAllStudents();
+    public ResponseEntity<List<StudentResponse>> getAllStudents(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "${pagination.default-limit:100}") int limit) {
+        return toResponse(studentService.getAllStudents(after, limit).map(StudentResponse::from));
+    }
+
+    // Ответ пишется напрямую в поток, без сборки всего списка в памяти
+    @GetMapping("/export")
+    public void exportStudents(@RequestParam(defaultValue = "ndjson") String format,
+                               HttpServletResponse response) throws IOException {
+        StudentExportService.Format exportFormat = StudentExportService.Format.from(format);
+        response.setContentType(exportFormat.getMediaType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"students." + exportFormat.name().toLowerCase() + "\"");
+        studentExportService.exportStudents(exportFormat, response.getOutputStream());
     }
 
     @GetMapping("/count")
@@ -98,9 +164,14 @@ public class StudentController {
         return studentService.getAverageAge();
     }
 
+    @GetMapping("/age-histogram")
+    public Map<Integer, Long> getAgeHistogram() {
+        return studentService.getAgeHistogram();
+    }
+
     @GetMapping("/last-five")
-    public List<Student> getLastFiveStudents() {
-        return studentService.getLastFiveStudents();
+    public List<StudentResponse> getLastFiveStudents() {
+        return studentService.getLastFiveStudents().stream().map(StudentResponse::from).toList();
     }
 
     @GetMapping("/names-starting-with-a")
@@ -112,4 +183,13 @@ public class StudentController {
     public Double getAverageAgeWithStream() {
         return studentService.getAverageAgeWithStream();
     }
+
+    // Тело остается массивом, а курсор следующей страницы передается в заголовке
+    private static <T> ResponseEntity<List<T>> toResponse(KeysetPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package org.skypro.hogwarts.dto;
+
+public record AvatarCacheStats(long hits, long misses, double hitRate, long evictions,
+                               long entries, long residentBytes, long capacityBytes, boolean offHeap) {
+}
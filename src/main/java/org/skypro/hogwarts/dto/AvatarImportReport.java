@@ -0,0 +1,13 @@
+package org.skypro.hogwarts.dto;
+
+import java.util.List;
+
+public record AvatarImportReport(int total, int imported, int failed, List<AvatarImportResult> items) {
+
+    public AvatarImportReport(List<AvatarImportResult> items) {
+        this(items.size(),
+                (int) items.stream().filter(AvatarImportResult::imported).count(),
+                (int) items.stream().filter(item -> !item.imported()).count(),
+                items);
+    }
+}
@@ -0,0 +1,12 @@
+package org.skypro.hogwarts.dto;
+
+public record AvatarImportResult(String name, Long studentId, boolean imported, Long avatarId, String message) {
+
+    public static AvatarImportResult imported(String name, Long studentId, Long avatarId) {
+        return new AvatarImportResult(name, studentId, true, avatarId, null);
+    }
+
+    public static AvatarImportResult failed(String name, Long studentId, String message) {
+        return new AvatarImportResult(name, studentId, false, null, message);
+    }
+}
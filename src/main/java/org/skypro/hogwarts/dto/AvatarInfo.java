@@ -0,0 +1,8 @@
+package org.skypro.hogwarts.dto;
+
+public record AvatarInfo(Long id, String filePath, long fileSize, String mediaType, Long studentId, String dataUrl) {
+
+    public AvatarInfo(Long id, String filePath, long fileSize, String mediaType, Long studentId) {
+        this(id, filePath, fileSize, mediaType, studentId, "/avatar/" + id + "/from-db");
+    }
+}
@@ -0,0 +1,7 @@
+package org.skypro.hogwarts.dto;
+
+import java.time.Instant;
+
+public record AvatarReconcilerStats(long runs, long filesScanned, long orphanFiles, long bytesReclaimed,
+                                    long bytesQuarantined, long orphanRows, long position, Instant lastRunAt) {
+}
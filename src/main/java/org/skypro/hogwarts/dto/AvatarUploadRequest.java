@@ -0,0 +1,4 @@
+package org.skypro.hogwarts.dto;
+
+public record AvatarUploadRequest(Long studentId, long size, String mediaType) {
+}
@@ -0,0 +1,4 @@
+package org.skypro.hogwarts.dto;
+
+public record AvatarUploadStatus(String uploadId, Long studentId, long size, long offset) {
+}
@@ -0,0 +1,4 @@
+package org.skypro.hogwarts.dto;
+
+public record EntityCacheStats(String region, long hits, long misses, long puts, double hitRate) {
+}
@@ -0,0 +1,10 @@
+package org.skypro.hogwarts.dto;
+
+import org.skypro.hogwarts.model.Faculty;
+
+public record FacultyResponse(Long id, String name, String color) {
+
+    public static FacultyResponse from(Faculty faculty) {
+        return new FacultyResponse(faculty.getId(), faculty.getName(), faculty.getColor());
+    }
+}
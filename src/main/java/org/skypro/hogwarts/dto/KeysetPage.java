@@ -0,0 +1,22 @@
+package org.skypro.hogwarts.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница выборки по ключу: элементы и курсор, с которого начинается следующая страница.
+ * Курсор равен null, если страница последняя.
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static <T> KeysetPage<T> of(List<T> items, int limit, Function<T, String> cursor) {
+        // Неполная страница означает, что дальше строк нет, и лишний запрос клиенту не нужен
+        String nextCursor = items.size() < limit ? null : cursor.apply(items.get(items.size() - 1));
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return new KeysetPage<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+}
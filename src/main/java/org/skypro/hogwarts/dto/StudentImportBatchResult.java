@@ -0,0 +1,12 @@
+package org.skypro.hogwarts.dto;
+
+public record StudentImportBatchResult(int batch, long firstRow, int rows, boolean imported, String message) {
+
+    public static StudentImportBatchResult imported(int batch, long firstRow, int rows) {
+        return new StudentImportBatchResult(batch, firstRow, rows, true, null);
+    }
+
+    public static StudentImportBatchResult failed(int batch, long firstRow, int rows, String message) {
+        return new StudentImportBatchResult(batch, firstRow, rows, false, message);
+    }
+}
@@ -0,0 +1,13 @@
+package org.skypro.hogwarts.dto;
+
+import java.util.List;
+
+public record StudentImportReport(long total, long imported, long failed, List<StudentImportBatchResult> batches) {
+
+    public StudentImportReport(List<StudentImportBatchResult> batches) {
+        this(batches.stream().mapToLong(StudentImportBatchResult::rows).sum(),
+                batches.stream().filter(StudentImportBatchResult::imported).mapToLong(StudentImportBatchResult::rows).sum(),
+                batches.stream().filter(batch -> !batch.imported()).mapToLong(StudentImportBatchResult::rows).sum(),
+                batches);
+    }
+}
@@ -0,0 +1,5 @@
+package org.skypro.hogwarts.dto;
+
+// Числа хранятся строками и разбираются при записи пачки, чтобы неверное значение не прерывало чтение файла
+public record StudentImportRow(String name, String age, String facultyId) {
+}
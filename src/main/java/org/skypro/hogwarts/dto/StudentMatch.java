@@ -0,0 +1,8 @@
+package org.skypro.hogwarts.dto;
+
+// Результат поиска по подстроке имени: id студента и сходство его имени с запросом
+public interface StudentMatch {
+    Long getId();
+
+    float getSimilarity();
+}
@@ -0,0 +1,4 @@
+package org.skypro.hogwarts.dto;
+
+public record StudentName(Long id, String name) {
+}
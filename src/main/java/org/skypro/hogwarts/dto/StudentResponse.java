@@ -0,0 +1,18 @@
+package org.skypro.hogwarts.dto;
+
+import org.skypro.hogwarts.model.Faculty;
+import org.skypro.hogwarts.model.Student;
+
+/**
+ * Студент в ответе API: только собственные поля и факультет одним уровнем,
+ * без аватарки и без обратного списка студентов факультета.
+ */
+public record StudentResponse(Long id, String name, int age, Long facultyId, String facultyName) {
+
+    public static StudentResponse from(Student student) {
+        Faculty faculty = student.getFaculty();
+        return new StudentResponse(student.getId(), student.getName(), student.getAge(),
+                faculty != null ? faculty.getId() : null,
+                faculty != null ? faculty.getName() : null);
+    }
+}
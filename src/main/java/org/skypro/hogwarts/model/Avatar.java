@@ -1,7 +1,9 @@
 package org.skypro.hogwarts.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import java.util.Arrays;
+import java.sql.Blob;
+import java.time.Instant;
 
 @Entity
 @Table(name = "avatars")
@@ -13,18 +15,23 @@ public class Avatar {
     private String filePath;
     private long fileSize;
     private String mediaType;
+    private String contentDigest;
+    private Instant updatedAt;
 
     @Lob
-    private byte[] data;
+    @Basic(fetch = FetchType.LAZY)
+    @JsonIgnore
+    private Blob data;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_id")
+    @JsonIgnore
     private Student student;
 
     public Avatar() {
     }
 
-    public Avatar(String filePath, long fileSize, String mediaType, byte[] data, Student student) {
+    public Avatar(String filePath, long fileSize, String mediaType, Blob data, Student student) {
         this.filePath = filePath;
         this.fileSize = fileSize;
         this.mediaType = mediaType;
@@ -65,11 +72,27 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
-    public byte[] getData() {
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    public void setContentDigest(String contentDigest) {
+        this.contentDigest = contentDigest;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Blob getData() {
         return data;
     }
 
-    public void setData(byte[] data) {
+    public void setData(Blob data) {
         this.data = data;
     }
 
@@ -81,28 +104,18 @@ public class Avatar {
         this.student = student;
     }
 
+    // Сравнение только по идентификатору: путь и тип могут быть null для аватаров,
+    // хранящихся в базе, а студент является ленивым прокси
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Avatar avatar = (Avatar) o;
-        return fileSize == avatar.fileSize &&
-                id.equals(avatar.id) &&
-                filePath.equals(avatar.filePath) &&
-                mediaType.equals(avatar.mediaType) &&
-                Arrays.equals(data, avatar.data) &&
-                student.equals(avatar.student);
+        if (!(o instanceof Avatar avatar)) return false;
+        return id != null && id.equals(avatar.getId());
     }
 
     @Override
     public int hashCode() {
-        int result = id.hashCode();
-        result = 31 * result + filePath.hashCode();
-        result = 31 * result + (int) (fileSize ^ (fileSize >>> 32));
-        result = 31 * result + mediaType.hashCode();
-        result = 31 * result + Arrays.hashCode(data);
-        result = 31 * result + student.hashCode();
-        return result;
+        return Avatar.class.hashCode();
     }
 
     @Override
@@ -112,7 +125,8 @@ public class Avatar {
                 ", filePath='" + filePath + '\'' +
                 ", fileSize=" + fileSize +
                 ", mediaType='" + mediaType + '\'' +
-                ", dataSize=" + (data != null ? data.length : 0) +
+                ", contentDigest='" + contentDigest + '\'' +
+                ", updatedAt=" + updatedAt +
                 ", studentId=" + (student != null ? student.getId() : "null") +
                 '}';
     }
@@ -0,0 +1,74 @@
+package org.skypro.hogwarts.model;
+
+import jakarta.persistence.*;
+import java.util.Objects;
+
+@Entity
+@Table(name = "avatar_contents")
+public class AvatarContent {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private long refCount;
+
+    public AvatarContent() {
+    }
+
+    public AvatarContent(String hash, long size, long refCount) {
+        this.hash = hash;
+        this.size = size;
+        this.refCount = refCount;
+    }
+
+    // Геттеры и сеттеры
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(long refCount) {
+        this.refCount = refCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AvatarContent that = (AvatarContent) o;
+        return Objects.equals(hash, that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return "AvatarContent{" +
+                "hash='" + hash + '\'' +
+                ", size=" + size +
+                ", refCount=" + refCount +
+                '}';
+    }
+}
@@ -0,0 +1,10 @@
+package org.skypro.hogwarts.model;
+
+import org.springframework.core.io.Resource;
+
+public record AvatarData(Avatar avatar, Resource resource, String mediaType, String contentTag) {
+
+    public AvatarData(Avatar avatar, Resource resource) {
+        this(avatar, resource, avatar.getMediaType(), avatar.getContentDigest());
+    }
+}
@@ -0,0 +1,111 @@
+package org.skypro.hogwarts.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "avatar_uploads")
+public class AvatarUpload {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private Long studentId;
+
+    private String mediaType;
+
+    @Column(nullable = false)
+    private long totalSize;
+
+    @Column(nullable = false)
+    private long receivedBytes;
+
+    private Instant updatedAt;
+
+    public AvatarUpload() {
+    }
+
+    public AvatarUpload(String id, Long studentId, String mediaType, long totalSize) {
+        this.id = id;
+        this.studentId = studentId;
+        this.mediaType = mediaType;
+        this.totalSize = totalSize;
+        this.updatedAt = Instant.now();
+    }
+
+    // Геттеры и сеттеры
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void setMediaType(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public void setReceivedBytes(long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AvatarUpload that = (AvatarUpload) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "AvatarUpload{" +
+                "id='" + id + '\'' +
+                ", studentId=" + studentId +
+                ", mediaType='" + mediaType + '\'' +
+                ", totalSize=" + totalSize +
+                ", receivedBytes=" + receivedBytes +
+                ", updatedAt=" + updatedAt +
+                '}';
+    }
+}
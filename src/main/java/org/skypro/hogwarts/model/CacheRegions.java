@@ -0,0 +1,13 @@
+package org.skypro.hogwarts.model;
+
+/**
+ * Имена регионов кэша второго уровня, на которые ссылаются аннотации сущностей.
+ */
+public final class CacheRegions {
+    public static final String FACULTIES = "faculties";
+    public static final String STUDENTS = "students";
+    public static final String FACULTY_STUDENTS = "faculty-students";
+
+    private CacheRegions() {
+    }
+}
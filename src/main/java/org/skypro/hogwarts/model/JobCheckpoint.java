@@ -0,0 +1,73 @@
+package org.skypro.hogwarts.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "job_checkpoints")
+public class JobCheckpoint {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long position;
+
+    private Instant updatedAt;
+
+    public JobCheckpoint() {
+    }
+
+    public JobCheckpoint(String name, long position) {
+        this.name = name;
+        this.position = position;
+        this.updatedAt = Instant.now();
+    }
+
+    // Геттеры и сеттеры
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JobCheckpoint that = (JobCheckpoint) o;
+        return Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(name);
+    }
+
+    @Override
+    public String toString() {
+        return "JobCheckpoint{" +
+                "name='" + name + '\'' +
+                ", position=" + position +
+                ", updatedAt=" + updatedAt +
+                '}';
+    }
+}
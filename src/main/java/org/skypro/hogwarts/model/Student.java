@@ -1,13 +1,22 @@
 package org.skypro.hogwarts.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.skypro.hogwarts.service.StudentChangeListener;
 import java.util.Objects;
 
 @Entity
 @Table(name = "students")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.STUDENTS)
+@EntityListeners(StudentChangeListener.class)
 public class Student {
+    // Последовательность с шагом 50: Hibernate выдает id блоками без обращения к БД и может группировать INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "students_seq")
+    @SequenceGenerator(name = "students_seq", sequenceName = "students_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -15,7 +24,10 @@ public class Student {
 
     @Column(nullable = false)
     private int age;
+    // Обратная сторона @OneToOne не бывает ленивой без bytecode enhancement: списки подтягивают ее
+    // через entity graph, а в JSON аватарка не попадает
     @OneToOne(mappedBy = "student", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @JsonIgnore
     private Avatar avatar;
 
 
@@ -31,6 +43,15 @@ public class Student {
     @JoinColumn(name = "faculty_id")
     private Faculty faculty;
 
+    // Возраст на момент загрузки из БД: по нему слушатель статистики узнает, откуда ушел студент
+    @Transient
+    @JsonIgnore
+    private Integer persistedAge;
+
+    @Transient
+    @JsonIgnore
+    private String persistedName;
+
     public Student() {
     }
 
@@ -64,6 +85,22 @@ public class Student {
         this.age = age;
     }
 
+    public Integer getPersistedAge() {
+        return persistedAge;
+    }
+
+    public void setPersistedAge(Integer persistedAge) {
+        this.persistedAge = persistedAge;
+    }
+
+    public String getPersistedName() {
+        return persistedName;
+    }
+
+    public void setPersistedName(String persistedName) {
+        this.persistedName = persistedName;
+    }
+
     public Faculty getFaculty() {
         return faculty;
     }
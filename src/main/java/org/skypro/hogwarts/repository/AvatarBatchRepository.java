@@ -0,0 +1,95 @@
+package org.skypro.hogwarts.repository;
+
+import org.skypro.hogwarts.model.Avatar;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пакетная запись аватарок через JDBC: у Avatar id генерируется IDENTITY,
+ * а для таких сущностей Hibernate не объединяет вставки в пачки. Содержимое LOB-колонки data
+ * передается подготовленным хранилищем Blob, в режимах без LOB она остается NULL.
+ */
+@Repository
+public class AvatarBatchRepository {
+    private static final String INSERT_SQL = "INSERT INTO avatars "
+            + "(file_path, file_size, media_type, content_digest, updated_at, data, student_id) "
+            + "VALUES (:filePath, :fileSize, :mediaType, :contentDigest, :updatedAt, :data, :studentId)";
+    private static final String UPDATE_SQL = "UPDATE avatars SET file_path = :filePath, file_size = :fileSize, "
+            + "media_type = :mediaType, content_digest = :contentDigest, updated_at = :updatedAt, data = :data "
+            + "WHERE id = :id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public AvatarBatchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Строки студентов блокируются по возрастанию id, чтобы пачки с общими студентами не взаимоблокировались
+    public Set<Long> lockExistingStudentIds(Collection<Long> studentIds) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM students WHERE id IN (:ids) ORDER BY id FOR NO KEY UPDATE",
+                Map.of("ids", studentIds), Long.class));
+    }
+
+    public Map<Long, Avatar> findByStudentIds(Collection<Long> studentIds) {
+        Map<Long, Avatar> avatars = new HashMap<>();
+        jdbcTemplate.query("SELECT id, student_id, file_path, content_digest FROM avatars WHERE student_id IN (:ids)",
+                Map.of("ids", studentIds), resultSet -> {
+                    Avatar avatar = new Avatar();
+                    avatar.setId(resultSet.getLong("id"));
+                    avatar.setFilePath(resultSet.getString("file_path"));
+                    avatar.setContentDigest(resultSet.getString("content_digest"));
+                    avatars.put(resultSet.getLong("student_id"), avatar);
+                });
+        return avatars;
+    }
+
+    public void insertAll(List<Avatar> avatars) {
+        if (avatars.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(INSERT_SQL, toParameters(avatars), keyHolder, new String[]{"id"});
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < avatars.size(); i++) {
+            avatars.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+        }
+    }
+
+    public void updateAll(List<Avatar> avatars) {
+        if (avatars.isEmpty()) {
+            return;
+        }
+        // Старое изображение могло остаться в LOB, его нужно освободить до обнуления ссылки
+        jdbcTemplate.queryForList("SELECT lo_unlink(data) FROM avatars WHERE id IN (:ids) AND data IS NOT NULL",
+                Map.of("ids", avatars.stream().map(Avatar::getId).toList()), Integer.class);
+        jdbcTemplate.batchUpdate(UPDATE_SQL, toParameters(avatars));
+    }
+
+    private SqlParameterSource[] toParameters(List<Avatar> avatars) {
+        return avatars.stream()
+                .map(avatar -> new MapSqlParameterSource()
+                        .addValue("id", avatar.getId())
+                        .addValue("filePath", avatar.getFilePath())
+                        .addValue("fileSize", avatar.getFileSize())
+                        .addValue("mediaType", avatar.getMediaType())
+                        .addValue("contentDigest", avatar.getContentDigest())
+                        .addValue("updatedAt", Timestamp.from(avatar.getUpdatedAt()))
+                        // Драйвер PostgreSQL создает из Blob новый large object и пишет его oid
+                        .addValue("data", avatar.getData(), Types.BLOB)
+                        .addValue("studentId", avatar.getStudent().getId()))
+                .toArray(SqlParameterSource[]::new);
+    }
+}
@@ -0,0 +1,45 @@
+package org.skypro.hogwarts.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.skypro.hogwarts.model.AvatarContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface AvatarContentRepository extends JpaRepository<AvatarContent, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO avatar_contents (hash, size, ref_count) VALUES (:hash, :size, 1) " +
+            "ON CONFLICT (hash) DO UPDATE SET ref_count = avatar_contents.ref_count + 1",
+            nativeQuery = true)
+    // Без списка таблиц Hibernate считает, что нативный INSERT мог изменить что угодно, и очищает весь кэш второго уровня
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "avatar_contents"))
+    void acquire(String hash, long size);
+
+    @Modifying
+    @Query("UPDATE AvatarContent c SET c.refCount = c.refCount - 1 WHERE c.hash = :hash AND c.refCount > 0")
+    int decrementRefCount(String hash);
+
+    @Modifying
+    @Query("DELETE FROM AvatarContent c WHERE c.hash = :hash AND c.refCount <= 0")
+    int deleteIfUnreferenced(String hash);
+
+    // Блокировка ждет незафиксированный acquire той же записи, после нее ссылки перепроверяются новым запросом
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM AvatarContent c WHERE c.hash = :hash")
+    Optional<AvatarContent> findForUpdate(String hash);
+
+    // Счетчик мог остаться после каскадного удаления студента, поэтому строка удаляется и при ненулевом счетчике,
+    // если на содержимое не ссылается ни одна аватарка
+    @Modifying
+    @Query("DELETE FROM AvatarContent c WHERE c.hash = :hash AND (c.refCount <= 0 "
+            + "OR NOT EXISTS (SELECT 1 FROM Avatar a WHERE a.contentDigest = :hash))")
+    int deleteIfOrphaned(String hash);
+}
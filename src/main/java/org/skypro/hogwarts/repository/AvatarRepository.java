@@ -1,10 +1,16 @@
 package org.skypro.hogwarts.repository;
 
+import org.skypro.hogwarts.dto.AvatarInfo;
 import org.skypro.hogwarts.model.Avatar;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +19,32 @@ public interface AvatarRepository extends JpaRepository<Avatar, Long> {
 
 
     Page<Avatar> findAll(Pageable pageable);
-}
\ No newline at end of file
+
+    @Query(value = "SELECT new org.skypro.hogwarts.dto.AvatarInfo(a.id, a.filePath, a.fileSize, a.mediaType, a.student.id) " +
+            "FROM Avatar a",
+            countQuery = "SELECT COUNT(a) FROM Avatar a")
+    Page<AvatarInfo> findAllInfo(Pageable pageable);
+
+    @Query("SELECT new org.skypro.hogwarts.dto.AvatarInfo(a.id, a.filePath, a.fileSize, a.mediaType, a.student.id) " +
+            "FROM Avatar a WHERE a.student.id = :studentId")
+    Optional<AvatarInfo> findInfoByStudentId(Long studentId);
+
+    @Query("SELECT a.id FROM Avatar a WHERE a.data IS NOT NULL AND a.id > :afterId ORDER BY a.id")
+    List<Long> findIdsWithDataAfter(Long afterId, Limit limit);
+
+    @Query(value = "SELECT lo_unlink(data) FROM avatars WHERE id = :id AND data IS NOT NULL", nativeQuery = true)
+    List<Integer> unlinkData(Long id);
+
+    @Query("SELECT DISTINCT a.contentDigest FROM Avatar a WHERE a.contentDigest IN :digests")
+    List<String> findExistingDigests(Collection<String> digests);
+
+    @Query("SELECT a.filePath FROM Avatar a WHERE a.filePath IN :filePaths")
+    List<String> findExistingFilePaths(Collection<String> filePaths);
+
+    @Query("SELECT a FROM Avatar a WHERE a.student IS NULL ORDER BY a.id")
+    List<Avatar> findWithoutStudent(Limit limit);
+
+    @Modifying
+    @Query("UPDATE Avatar a SET a.data = NULL, a.filePath = :filePath, a.contentDigest = :contentDigest WHERE a.id = :id")
+    int moveDataToFile(Long id, String filePath, String contentDigest);
+}
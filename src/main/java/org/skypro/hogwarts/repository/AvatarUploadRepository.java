@@ -0,0 +1,29 @@
+package org.skypro.hogwarts.repository;
+
+import org.skypro.hogwarts.model.AvatarUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface AvatarUploadRepository extends JpaRepository<AvatarUpload, String> {
+
+    // Смещение только растет: кусок засчитывается, если он начался не дальше принятого и продлил его
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AvatarUpload u SET u.receivedBytes = :end, u.updatedAt = :now "
+            + "WHERE u.id = :id AND u.receivedBytes >= :offset AND u.receivedBytes < :end")
+    int advance(String id, long offset, long end, Instant now);
+
+    // Завершить загрузку может только один запрос: строку забирает тот, кто ее удалил
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM AvatarUpload u WHERE u.id = :id AND u.receivedBytes >= u.totalSize")
+    int claimCompleted(String id);
+
+    List<AvatarUpload> findByUpdatedAtBefore(Instant updatedAt);
+}
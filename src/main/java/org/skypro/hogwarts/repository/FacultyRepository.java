@@ -1,12 +1,23 @@
 package org.skypro.hogwarts.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.skypro.hogwarts.model.Faculty;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
-    List<Faculty> findByColor(String color);
-    List<Faculty> findByNameIgnoreCaseOrColorIgnoreCase(String name, String color);
-}
\ No newline at end of file
+    List<Faculty> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+    // Факультеты меняются редко: id найденных по цвету берутся из кэша запросов, а сами факультеты — из кэша сущностей
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Faculty> findByColorAndIdGreaterThanOrderByIdAsc(String color, Long afterId, Limit limit);
+
+    @Query("SELECT f FROM Faculty f WHERE (LOWER(f.name) = LOWER(:search) OR LOWER(f.color) = LOWER(:search)) "
+            + "AND f.id > :afterId ORDER BY f.id")
+    List<Faculty> findByNameOrColorIgnoreCaseAfter(String search, Long afterId, Limit limit);
+}
@@ -0,0 +1,9 @@
+package org.skypro.hogwarts.repository;
+
+import org.skypro.hogwarts.model.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
@@ -1,26 +1,94 @@
 package org.skypro.hogwarts.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.skypro.hogwarts.dto.StudentAge;
+import org.skypro.hogwarts.dto.StudentMatch;
+import org.skypro.hogwarts.dto.StudentName;
 import org.skypro.hogwarts.model.Student;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface StudentRepository extends JpaRepository<Student, Long> {
-    List<Student> findByAge(int age);
-    List<Student> findByAgeBetween(int minAge, int maxAge);
-    List<Student> findByNameContainingIgnoreCase(String namePart);
-    List<Student> findByAgeLessThan(int age);
-    List<Student> findAllByOrderByAgeAsc();
+    // Выборки постраничные по ключу: следующая страница начинается после последней строки предыдущей,
+    // поэтому глубина листания не влияет на время запроса. Порядок (age, id) покрыт idx_students_age_id.
+    // Факультет и аватарка подтягиваются тем же запросом, иначе Hibernate догружает аватарку каждого студента
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    List<Student> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
 
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    List<Student> findByAgeAndIdGreaterThanOrderByIdAsc(int age, Long afterId, Limit limit);
 
-    @Query("SELECT COUNT(s) FROM Student s")
-    Integer countAllStudents();
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    List<Student> findByIdIn(Collection<Long> ids);
 
-    @Query("SELECT AVG(s.age) FROM Student s")
-    Double findAverageAge();
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    @Query("SELECT s FROM Student s WHERE s.age BETWEEN :minAge AND :maxAge "
+            + "AND (s.age, s.id) > (:afterAge, :afterId) ORDER BY s.age, s.id")
+    List<Student> findByAgeBetweenAfter(int minAge, int maxAge, int afterAge, Long afterId, Limit limit);
 
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    @Query("SELECT s FROM Student s WHERE s.age < :age AND (s.age, s.id) > (:afterAge, :afterId) ORDER BY s.age, s.id")
+    List<Student> findByAgeLessThanAfter(int age, int afterAge, Long afterId, Limit limit);
+
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    @Query("SELECT s FROM Student s WHERE (s.age, s.id) > (:afterAge, :afterId) ORDER BY s.age, s.id")
+    List<Student> findOrderedByAgeAfter(int afterAge, Long afterId, Limit limit);
+
+    // Студенты факультета читаются напрямую по faculty_id, не трогая коллекцию Faculty.students.
+    // Курсор несет ключ сортировки последнего студента страницы, а не только его id, так что страницы
+    // не зависят от того, жив ли этот студент.
+    // Каждый порядок покрыт своим индексом из 006-create-faculty-roster-indexes
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    List<Student> findByFacultyIdAndIdGreaterThanOrderByIdAsc(Long facultyId, Long afterId, Limit limit);
+
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    @Query("SELECT s FROM Student s WHERE s.faculty.id = :facultyId AND (s.name, s.id) > (:afterName, :afterId) "
+            + "ORDER BY s.name, s.id")
+    List<Student> findByFacultyIdOrderedByNameAfter(Long facultyId, String afterName, Long afterId, Limit limit);
+
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    @Query("SELECT s FROM Student s WHERE s.faculty.id = :facultyId AND (s.age, s.id) > (:afterAge, :afterId) "
+            + "ORDER BY s.age, s.id")
+    List<Student> findByFacultyIdOrderedByAgeAfter(Long facultyId, int afterAge, Long afterId, Limit limit);
+
+    long countByFacultyId(Long facultyId);
+
+    // Подстрока ищется по idx_students_name_trgm, порядок — по убыванию сходства, затем по id.
+    // Курсор — сходство и id последнего студента, так что удаление или переименование этого студента
+    // не сбивает следующую страницу. Сами студенты читаются findByIdIn вместе с факультетом и аватаркой
+    @Query(value = "SELECT s.id AS id, similarity(lower(s.name), lower(:query)) AS similarity FROM students s " +
+            "WHERE lower(s.name) LIKE lower(:pattern) ESCAPE '\\' " +
+            "AND (similarity(lower(s.name), lower(:query)), -s.id) < (CAST(:afterSimilarity AS real), -:afterId) " +
+            "ORDER BY similarity DESC, s.id LIMIT :limit",
+            nativeQuery = true)
+    List<StudentMatch> searchByName(String query, String pattern, float afterSimilarity, Long afterId, int limit);
+
+    // Без fetch size драйвер PostgreSQL загружает весь результат в память еще до первой строки
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @EntityGraph(attributePaths = "avatar")
+    Stream<Student> streamAllByOrderByIdAsc();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new org.skypro.hogwarts.dto.StudentName(s.id, s.name) FROM Student s")
+    Stream<StudentName> streamNamesBy();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new org.skypro.hogwarts.dto.StudentAge(s.id, s.age) FROM Student s ORDER BY s.id")
+    Stream<StudentAge> streamAgesBy();
+
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
     @Query("SELECT s FROM Student s ORDER BY s.id DESC LIMIT 5")
     List<Student> findLastFiveStudents();
-}
\ No newline at end of file
+}
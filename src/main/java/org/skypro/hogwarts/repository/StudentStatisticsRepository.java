@@ -0,0 +1,28 @@
+package org.skypro.hogwarts.repository;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сверка статистики студентов напрямую через JDBC: репозиторий нужен слушателю сущности
+ * Student, поэтому он не может зависеть от EntityManagerFactory.
+ */
+@Repository
+public class StudentStatisticsRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StudentStatisticsRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Map<Integer, Long> countByAge() {
+        Map<Integer, Long> histogram = new TreeMap<>();
+        jdbcTemplate.query("SELECT age, COUNT(*) AS students FROM students GROUP BY age", Map.of(),
+                resultSet -> {
+                    histogram.put(resultSet.getInt("age"), resultSet.getLong("students"));
+                });
+        return histogram;
+    }
+}
@@ -0,0 +1,429 @@
+package org.skypro.hogwarts.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.AvatarImportReport;
+import org.skypro.hogwarts.dto.AvatarImportResult;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.AvatarBatchRepository;
+import org.skypro.hogwarts.storage.AvatarStorage;
+import org.skypro.hogwarts.storage.AvatarStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Массовая загрузка аватарок: имя файла в архиве или в multipart-запросе задает id студента ({@code 42.jpg}).
+ * Содержимое записывается параллельно, а строки avatars вставляются пачками через JDBC,
+ * при этом одновременно в БД пишут не больше {@code avatars.bulk.max-concurrent-writes} пачек.
+ * Файл больше {@code avatars.bulk.max-entry-size} отклоняется, а распаковка архива останавливается,
+ * когда содержимое превышает {@code avatars.bulk.max-archive-size}.
+ * В режимах database и dual пакетная вставка записывает и LOB-колонку data из подготовленных хранилищем копий.
+ */
+@Service
+public class AvatarBulkImportService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarBulkImportService.class);
+
+    private record PendingAvatar(String name, Avatar avatar, CompletableFuture<AvatarImportResult> result) {
+    }
+
+    private final AvatarStorage avatarStorage;
+    private final AvatarStore avatarStore;
+    private final AvatarBatchRepository avatarBatchRepository;
+    private final AvatarCache avatarCache;
+    private final AvatarVariantService avatarVariantService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final Semaphore databaseWrites;
+    private final int workers;
+    private final int batchSize;
+    private final DataSize maxEntrySize;
+    private final DataSize maxArchiveSize;
+
+    public AvatarBulkImportService(AvatarStorage avatarStorage,
+                                   AvatarStore avatarStore,
+                                   AvatarBatchRepository avatarBatchRepository,
+                                   AvatarCache avatarCache,
+                                   AvatarVariantService avatarVariantService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${avatars.bulk.workers:8}") int workers,
+                                   @Value("${avatars.bulk.max-concurrent-writes:2}") int maxConcurrentWrites,
+                                   @Value("${avatars.bulk.batch-size:500}") int batchSize,
+                                   @Value("${avatars.bulk.max-entry-size:${avatars.upload.max-size:100MB}}") DataSize maxEntrySize,
+                                   @Value("${avatars.bulk.max-archive-size:2GB}") DataSize maxArchiveSize) {
+        this.avatarStorage = avatarStorage;
+        this.avatarStore = avatarStore;
+        this.avatarBatchRepository = avatarBatchRepository;
+        this.avatarCache = avatarCache;
+        this.avatarVariantService = avatarVariantService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.databaseWrites = new Semaphore(maxConcurrentWrites);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxEntrySize = maxEntrySize;
+        this.maxArchiveSize = maxArchiveSize;
+
+        // Виртуальные потоки появились только в Java 21, поэтому работу делит фиксированный пул
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "avatar-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Сервис массовой загрузки аватарок инициализирован: потоков={}, пачка={}, записей в БД={}",
+                workers, batchSize, maxConcurrentWrites);
+    }
+
+    public AvatarImportReport importArchive(InputStream archive) throws IOException {
+        logger.info("Был вызван метод для массовой загрузки аватарок из архива");
+        ImportRun run = new ImportRun();
+        long remaining = maxArchiveSize.toBytes();
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                // Архив читается последовательно, поэтому запись сначала выгружается во временный файл.
+                // Размер в заголовке записи может быть ложным, так что лимит проверяется по прочитанным байтам
+                Path tempFile = avatarStore.createTempFile();
+                long copied;
+                try {
+                    copied = copyAtMost(zip, tempFile, Math.min(maxEntrySize.toBytes(), remaining) + 1);
+                } catch (IOException e) {
+                    deleteTempFile(tempFile);
+                    throw e;
+                }
+                remaining -= copied;
+                if (remaining >= 0 && copied <= maxEntrySize.toBytes()) {
+                    run.submit(entry.getName(), null, new FileSystemResource(tempFile), tempFile);
+                    continue;
+                }
+                deleteTempFile(tempFile);
+                if (remaining >= 0) {
+                    run.reject(entry.getName(), "Файл больше " + maxEntrySize);
+                    remaining -= transferAtMost(zip, OutputStream.nullOutputStream(), remaining + 1);
+                }
+                if (remaining < 0) {
+                    logger.warn("Архив аватарок больше {} после распаковки, остальные файлы пропущены", maxArchiveSize);
+                    run.fail("Архив больше " + maxArchiveSize + " после распаковки");
+                    break;
+                }
+            }
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            // Уже прочитанные файлы загружаем, а обрыв архива отражаем в отчете
+            logger.error("Архив аватарок прочитан не полностью", e);
+            run.fail("Архив прочитан не полностью: " + e.getMessage());
+        }
+        return run.finish();
+    }
+
+    public AvatarImportReport importFiles(List<MultipartFile> files) throws IOException {
+        logger.info("Был вызван метод для массовой загрузки {} аватарок", files.size());
+        ImportRun run = new ImportRun();
+        for (MultipartFile file : files) {
+            if (file.getSize() > maxEntrySize.toBytes()) {
+                run.reject(file.getOriginalFilename(), "Файл больше " + maxEntrySize);
+                continue;
+            }
+            run.submit(file.getOriginalFilename(), file.getContentType(), file, null);
+        }
+        return run.finish();
+    }
+
+    private static long copyAtMost(InputStream in, Path target, long max) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            return transferAtMost(in, out, max);
+        }
+    }
+
+    private static long transferAtMost(InputStream in, OutputStream out, long max) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        while (total < max) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, max - total));
+            if (read < 0) {
+                break;
+            }
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    private static Long parseStudentId(String name) {
+        String baseName = StringUtils.stripFilenameExtension(StringUtils.getFilename(name));
+        try {
+            return baseName != null ? Long.valueOf(baseName) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private class ImportRun {
+        private final List<CompletableFuture<AvatarImportResult>> results = new ArrayList<>();
+        private final List<PendingAvatar> pending = new ArrayList<>();
+        // Ограничивает число выгруженных, но еще не обработанных файлов
+        private final Semaphore inFlight = new Semaphore(workers * 2);
+
+        void submit(String name, String mediaType, InputStreamSource source, Path tempFile) throws IOException {
+            Long studentId = parseStudentId(name);
+            if (studentId == null) {
+                results.add(CompletableFuture.completedFuture(
+                        AvatarImportResult.failed(name, null, "Имя файла должно быть id студента")));
+                deleteTempFile(tempFile);
+                return;
+            }
+            String resolvedType = mediaType != null ? mediaType : MediaTypeFactory.getMediaType(name)
+                    .map(MediaType::toString)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                deleteTempFile(tempFile);
+                throw new InterruptedIOException("Массовая загрузка прервана");
+            }
+            CompletableFuture<AvatarImportResult> result = new CompletableFuture<>();
+            results.add(result);
+            executor.execute(() -> {
+                try {
+                    process(name, studentId, resolvedType, source, result);
+                } finally {
+                    deleteTempFile(tempFile);
+                    inFlight.release();
+                }
+            });
+        }
+
+        private void process(String name, Long studentId, String mediaType, InputStreamSource source,
+                             CompletableFuture<AvatarImportResult> result) {
+            try (InputStream in = source.getInputStream()) {
+                Avatar avatar = new Avatar();
+                Student student = new Student();
+                student.setId(studentId);
+                avatar.setStudent(student);
+                avatar.setMediaType(mediaType);
+                avatar.setUpdatedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+                avatarStorage.prepare(avatar, in);
+
+                List<PendingAvatar> batch = null;
+                synchronized (pending) {
+                    pending.add(new PendingAvatar(name, avatar, result));
+                    if (pending.size() >= batchSize) {
+                        batch = new ArrayList<>(pending);
+                        pending.clear();
+                    }
+                }
+                if (batch != null) {
+                    writeBatch(batch);
+                }
+            } catch (Exception e) {
+                logger.warn("Не удалось загрузить аватарку {} для студента {}", name, studentId, e);
+                result.complete(AvatarImportResult.failed(name, studentId, e.getMessage()));
+            }
+        }
+
+        void reject(String name, String message) {
+            results.add(CompletableFuture.completedFuture(AvatarImportResult.failed(name, parseStudentId(name), message)));
+        }
+
+        void fail(String message) {
+            results.add(CompletableFuture.completedFuture(AvatarImportResult.failed(null, null, message)));
+        }
+
+        AvatarImportReport finish() throws InterruptedIOException {
+            // Все разрешения свободны только когда обработаны все отправленные файлы
+            try {
+                inFlight.acquire(workers * 2);
+                inFlight.release(workers * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Массовая загрузка прервана");
+            }
+            List<PendingAvatar> batch;
+            synchronized (pending) {
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+            List<AvatarImportResult> items = results.stream().map(CompletableFuture::join).toList();
+            AvatarImportReport report = new AvatarImportReport(items);
+            logger.info("Массовая загрузка аватарок завершена: всего={}, загружено={}, с ошибкой={}",
+                    report.total(), report.imported(), report.failed());
+            return report;
+        }
+    }
+
+    private void writeBatch(List<PendingAvatar> batch) {
+        try {
+            writeLatest(batch);
+        } finally {
+            // Результат каждого файла должен быть выставлен, иначе отчет будет ждать его бесконечно
+            for (PendingAvatar item : batch) {
+                freeData(item.avatar());
+                item.result().complete(AvatarImportResult.failed(item.name(), studentId(item),
+                        "Не удалось завершить загрузку"));
+            }
+        }
+    }
+
+    private void writeLatest(List<PendingAvatar> batch) {
+        // Внутри пачки у студента остается последний файл, предыдущие считаются замененными
+        Map<Long, PendingAvatar> latest = new LinkedHashMap<>();
+        List<PendingAvatar> rejected = new ArrayList<>();
+        for (PendingAvatar item : batch) {
+            PendingAvatar replaced = latest.put(item.avatar().getStudent().getId(), item);
+            if (replaced != null) {
+                rejected.add(replaced);
+                replaced.result().complete(AvatarImportResult.failed(replaced.name(), studentId(replaced),
+                        "Заменена более поздним файлом для того же студента"));
+            }
+        }
+
+        Map<Long, Avatar> previous = new LinkedHashMap<>();
+        Set<Long> written = new HashSet<>();
+        try {
+            writeLimited(() -> transactionTemplate.execute(status -> {
+                // Блокировка студентов упорядочивает параллельные пачки с одним студентом: вторая увидит строку первой
+                Set<Long> students = avatarBatchRepository.lockExistingStudentIds(latest.keySet());
+                Map<Long, Avatar> existing = avatarBatchRepository.findByStudentIds(students);
+                List<Avatar> inserts = new ArrayList<>();
+                List<Avatar> updates = new ArrayList<>();
+                for (PendingAvatar item : latest.values()) {
+                    Long studentId = studentId(item);
+                    if (!students.contains(studentId)) {
+                        continue;
+                    }
+                    Avatar current = existing.get(studentId);
+                    if (current == null) {
+                        inserts.add(item.avatar());
+                    } else {
+                        item.avatar().setId(current.getId());
+                        previous.put(studentId, current);
+                        updates.add(item.avatar());
+                    }
+                    written.add(studentId);
+                }
+                avatarBatchRepository.insertAll(inserts);
+                avatarBatchRepository.updateAll(updates);
+                return null;
+            }));
+        } catch (Exception e) {
+            logger.error("Не удалось записать пачку из {} аватарок", batch.size(), e);
+            for (PendingAvatar item : latest.values()) {
+                releaseContent(item.avatar());
+                item.result().complete(AvatarImportResult.failed(item.name(), studentId(item),
+                        "Ошибка записи в базу данных: " + e.getMessage()));
+            }
+            rejected.forEach(item -> releaseContent(item.avatar()));
+            return;
+        }
+
+        for (PendingAvatar item : latest.values()) {
+            Long studentId = studentId(item);
+            if (!written.contains(studentId)) {
+                releaseContent(item.avatar());
+                item.result().complete(AvatarImportResult.failed(item.name(), studentId,
+                        "Студент не найден с id: " + studentId));
+                continue;
+            }
+            Avatar replacedAvatar = previous.get(studentId);
+            if (replacedAvatar != null) {
+                avatarStorage.release(replacedAvatar.getContentDigest(), replacedAvatar.getFilePath());
+            }
+            avatarCache.invalidate(item.avatar().getId(), studentId);
+            avatarVariantService.submit(item.avatar());
+            item.result().complete(AvatarImportResult.imported(item.name(), studentId, item.avatar().getId()));
+        }
+        rejected.forEach(item -> releaseContent(item.avatar()));
+        logger.debug("Записана пачка аватарок: {} из {}", written.size(), batch.size());
+    }
+
+    private interface DatabaseWrite<T> {
+        T run() throws Exception;
+    }
+
+    private <T> T writeLimited(DatabaseWrite<T> write) throws Exception {
+        databaseWrites.acquire();
+        try {
+            return write.run();
+        } finally {
+            databaseWrites.release();
+        }
+    }
+
+    private void releaseContent(Avatar avatar) {
+        avatarStorage.release(avatar.getContentDigest(), avatar.getFilePath());
+    }
+
+    // Поток подготовленной копии LOB держит открытый файл до записи пачки
+    private static void freeData(Avatar avatar) {
+        if (avatar.getData() == null) {
+            return;
+        }
+        try {
+            avatar.getData().free();
+        } catch (SQLException e) {
+            logger.warn("Не удалось освободить подготовленное содержимое аватарки студента {}",
+                    avatar.getStudent().getId(), e);
+        }
+    }
+
+    private static Long studentId(PendingAvatar item) {
+        return item.avatar().getStudent().getId();
+    }
+
+    private static void deleteTempFile(Path tempFile) {
+        if (tempFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить временный файл {}", tempFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
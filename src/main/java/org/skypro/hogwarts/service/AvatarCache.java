@@ -0,0 +1,148 @@
+package org.skypro.hogwarts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.AvatarCacheStats;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.AvatarData;
+import org.skypro.hogwarts.storage.ByteBufferResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+@Component
+public class AvatarCache {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarCache.class);
+
+    public enum Source {
+        DATABASE,
+        FILE
+    }
+
+    private record Key(Source source, Long id, Integer size) {
+    }
+
+    private record Entry(Avatar avatar, String mediaType, String contentTag, ByteBuffer content) {
+    }
+
+    private final Cache<Key, Entry> cache;
+    private final long capacityBytes;
+    private final long maxEntryBytes;
+    private final boolean offHeap;
+
+    public AvatarCache(@Value("${avatars.cache.capacity:64MB}") DataSize capacity,
+                       @Value("${avatars.cache.max-entry-size:2MB}") DataSize maxEntrySize,
+                       @Value("${avatars.cache.ttl:PT10M}") Duration ttl,
+                       @Value("${avatars.cache.off-heap:false}") boolean offHeap) {
+        this.capacityBytes = capacity.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), Integer.MAX_VALUE);
+        this.offHeap = offHeap;
+        // Caffeine вытесняет по W-TinyLFU, то есть учитывает частоту обращений, а не только давность
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(capacityBytes)
+                .weigher((Key key, Entry entry) -> entry.content().capacity())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        logger.info("Кэш аватарок инициализирован: емкость={} байт, вне кучи={}", capacityBytes, offHeap);
+    }
+
+    public Optional<AvatarData> get(Source source, Long id, Integer size, Supplier<Optional<AvatarData>> loader) {
+        Key key = new Key(source, id, size);
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(toAvatarData(cached));
+        }
+
+        Optional<AvatarData> loaded = loader.get();
+        // Байты попадают в кэш при первом чтении, так что ответ 304 не загружает изображение
+        return loaded.map(avatarData -> new AvatarData(avatarData.avatar(), new CachingResource(key, avatarData),
+                avatarData.mediaType(), avatarData.contentTag()));
+    }
+
+    public void invalidate(Long avatarId, Long studentId) {
+        cache.asMap().keySet().removeIf(key ->
+                key.source() == Source.DATABASE && key.id().equals(avatarId)
+                        || key.source() == Source.FILE && key.id().equals(studentId));
+    }
+
+    public AvatarCacheStats getStats() {
+        // Вытеснение и учет веса Caffeine выполняет в фоне, без этого статистика отстает от содержимого
+        cache.cleanUp();
+        CacheStats stats = cache.stats();
+        long residentBytes = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new AvatarCacheStats(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(),
+                cache.estimatedSize(), residentBytes, capacityBytes, offHeap);
+    }
+
+    private ByteBuffer copyContent(InputStream in, int length) throws IOException {
+        try (in) {
+            ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+            byte[] chunk = new byte[Math.min(length, 8192)];
+            int read;
+            while (buffer.hasRemaining() && (read = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()))) != -1) {
+                buffer.put(chunk, 0, read);
+            }
+            return buffer.flip();
+        }
+    }
+
+    private AvatarData toAvatarData(Entry entry) {
+        return new AvatarData(entry.avatar(), new ByteBufferResource(entry.content(), "Cached avatar"),
+                entry.mediaType(), entry.contentTag());
+    }
+
+    private class CachingResource extends AbstractResource {
+        private final Key key;
+        private final AvatarData source;
+
+        CachingResource(Key key, AvatarData source) {
+            this.key = key;
+            this.source = source;
+        }
+
+        @Override
+        public String getDescription() {
+            return source.resource().getDescription();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return source.resource().contentLength();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            Resource resource = source.resource();
+            long length = resource.contentLength();
+            if (length > maxEntryBytes) {
+                return resource.getInputStream();
+            }
+            Entry entry = new Entry(source.avatar(), source.mediaType(), source.contentTag(),
+                    copyContent(resource.getInputStream(), (int) length));
+            cache.put(key, entry);
+            return new ByteBufferResource(entry.content(), "Cached avatar").getInputStream();
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            // Крупные файлы в кэш не попадают и по-прежнему отдаются через FileChannel
+            Resource resource = source.resource();
+            return resource.contentLength() > maxEntryBytes ? resource.readableChannel() : super.readableChannel();
+        }
+    }
+}
@@ -2,19 +2,36 @@ package org.skypro.hogwarts.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.AvatarCacheStats;
+import org.skypro.hogwarts.dto.AvatarInfo;
+import org.skypro.hogwarts.dto.AvatarReconcilerStats;
 import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.AvatarData;
 import org.skypro.hogwarts.model.Student;
 import org.skypro.hogwarts.repository.AvatarRepository;
+import org.skypro.hogwarts.storage.AvatarOrphanReconciler;
+import org.skypro.hogwarts.storage.AvatarStorage;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 
 @Service
@@ -22,15 +39,26 @@ public class AvatarService {
     private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
     private final AvatarRepository avatarRepository;
     private final StudentService studentService;
-
-    @Value("${avatars.dir.path}")
-    private String avatarsDirPath;
+    private final AvatarStorage avatarStorage;
+    private final AvatarVariantService avatarVariantService;
+    private final AvatarCache avatarCache;
+    private final ObjectProvider<AvatarOrphanReconciler> orphanReconciler;
+    private final TransactionTemplate readOnlyTransaction;
 
     @Autowired
-    public AvatarService(AvatarRepository avatarRepository, StudentService studentService) {
+    public AvatarService(AvatarRepository avatarRepository, StudentService studentService,
+                         AvatarStorage avatarStorage, AvatarVariantService avatarVariantService,
+                         AvatarCache avatarCache, PlatformTransactionManager transactionManager,
+                         ObjectProvider<AvatarOrphanReconciler> orphanReconciler) {
         this.avatarRepository = avatarRepository;
         this.studentService = studentService;
-        logger.info("Сервис аватарок инициализирован с директорией: {}", avatarsDirPath);
+        this.avatarStorage = avatarStorage;
+        this.avatarVariantService = avatarVariantService;
+        this.avatarCache = avatarCache;
+        this.orphanReconciler = orphanReconciler;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        logger.info("Сервис аватарок инициализирован");
     }
 
     public Avatar uploadAvatar(Long studentId, MultipartFile file) throws IOException {
@@ -38,80 +66,140 @@ public class AvatarService {
         logger.debug("Детали файла: имя={}, размер={}, тип={}",
                 file.getOriginalFilename(), file.getSize(), file.getContentType());
 
+        try (InputStream in = file.getInputStream()) {
+            return uploadAvatar(studentId, file.getContentType(), in);
+        }
+    }
+
+    public Avatar uploadAvatar(Long studentId, String mediaType, InputStream content) throws IOException {
         Student student = studentService.findStudentById(studentId)
                 .orElseThrow(() -> {
                     logger.error("Невозможно загрузить аватарку: Студент не найден с id = {}", studentId);
                     return new RuntimeException("Студент не найден с id: " + studentId);
                 });
 
-        Path directoryPath = Path.of(avatarsDirPath);
-        if (!Files.exists(directoryPath)) {
-            logger.info("Создание директории для аватарок: {}", directoryPath);
-            Files.createDirectories(directoryPath);
-        }
-
-        String fileExtension = getFileExtension(file.getOriginalFilename());
-        String fileName = "avatar_" + studentId + fileExtension;
-        Path filePath = directoryPath.resolve(fileName);
-
-        logger.debug("Сохранение аватарки в файл: {}", filePath);
-        Files.write(filePath, file.getBytes());
-
-        Avatar avatar = new Avatar();
-        avatar.setFilePath(filePath.toString());
-        avatar.setFileSize(file.getSize());
-        avatar.setMediaType(file.getContentType());
-        avatar.setData(file.getBytes());
+        Avatar avatar = avatarRepository.findByStudentId(studentId).orElseGet(Avatar::new);
+        String previousDigest = avatar.getContentDigest();
+        String previousFilePath = avatar.getFilePath();
+        avatar.setMediaType(mediaType);
         avatar.setStudent(student);
-
-        Avatar savedAvatar = avatarRepository.save(avatar);
+        // HTTP-даты имеют точность до секунды, поэтому и храним время без долей
+        avatar.setUpdatedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+        Avatar savedAvatar = avatarStorage.save(avatar, content);
+        avatarStorage.release(previousDigest, previousFilePath);
+        // Во внешней транзакции до фиксации параллельное чтение вернуло бы в кэш старое содержимое,
+        // а обработчик вариантов не увидел бы новую строку
+        afterCommit(() -> {
+            avatarCache.invalidate(savedAvatar.getId(), studentId);
+            avatarVariantService.submit(savedAvatar);
+        });
         logger.info("Аватарка успешно загружена для студента {}: id аватарки={}", studentId, savedAvatar.getId());
         return savedAvatar;
     }
 
-    public Optional<Avatar> getAvatarFromDb(Long id) {
-        logger.debug("Получение аватарки из базы данных по id: {}", id);
-        return avatarRepository.findById(id);
+    public Optional<AvatarData> getAvatarFromDb(Long id, Integer size) {
+        logger.debug("Получение аватарки из базы данных по id: {}, размер: {}", id, size);
+        return avatarCache.get(AvatarCache.Source.DATABASE, id, size,
+                () -> readOnlyTransaction.execute(status -> loadAvatarFromDb(id, size)));
+    }
+
+    private Optional<AvatarData> loadAvatarFromDb(Long id, Integer size) {
+        return avatarRepository.findById(id)
+                .flatMap(avatar -> findVariant(avatar, size)
+                        .or(() -> avatarStorage.readFromDatabase(avatar)
+                                .map(resource -> new AvatarData(avatar, resource))));
     }
 
-    public Optional<Avatar> getAvatarByStudentId(Long studentId) {
-        logger.debug("Получение аватарки по id студента: {}", studentId);
-        return avatarRepository.findByStudentId(studentId);
+    public Optional<AvatarInfo> getAvatarInfoByStudentId(Long studentId) {
+        logger.debug("Получение информации об аватарке по id студента: {}", studentId);
+        return avatarRepository.findInfoByStudentId(studentId);
     }
 
-    public byte[] getAvatarImageFromFile(Long studentId) throws IOException {
-        logger.info("Был вызван метод для получения изображения аватарки из файла для студента с id: {}", studentId);
+    public Optional<AvatarData> getAvatarFromFile(Long studentId, Integer size) {
+        logger.info("Был вызван метод для получения файла аватарки для студента с id: {}, размер: {}", studentId, size);
+        return avatarCache.get(AvatarCache.Source.FILE, studentId, size,
+                () -> readOnlyTransaction.execute(status -> loadAvatarFromFile(studentId, size)));
+    }
 
+    private Optional<AvatarData> loadAvatarFromFile(Long studentId, Integer size) {
         Optional<Avatar> avatarOptional = avatarRepository.findByStudentId(studentId);
-        if (avatarOptional.isPresent()) {
-            Avatar avatar = avatarOptional.get();
-            Path filePath = Path.of(avatar.getFilePath());
-            if (Files.exists(filePath)) {
-                logger.debug("Чтение файла аватарки: {}", filePath);
-                return Files.readAllBytes(filePath);
-            }
+        if (avatarOptional.isEmpty()) {
+            logger.error("Аватарка не найдена в базе данных для студента с id: {}", studentId);
+            return Optional.empty();
+        }
+
+        Avatar avatar = avatarOptional.get();
+        Optional<AvatarData> variant = findVariant(avatar, size);
+        if (variant.isPresent()) {
+            return variant;
+        }
+        Optional<Resource> resource = avatarStorage.readFromFile(avatar);
+        if (resource.isEmpty()) {
             logger.error("Файл аватарки не найден для студента с id: {}", studentId);
-            throw new RuntimeException("Файл аватарки не найден для студента с id: " + studentId);
         }
-        logger.error("Аватарка не найдена в базе данных для студента с id: {}", studentId);
-        throw new RuntimeException("Аватарка не найдена в базе данных для студента с id: " + studentId);
+        return resource.map(value -> new AvatarData(avatar, value));
+    }
+
+    public void transferAvatar(Resource resource, long position, long count, OutputStream out) throws IOException {
+        logger.debug("Передача аватарки {}: позиция={}, длина={}", resource, position, count);
+
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+            if (!(channel instanceof FileChannel fileChannel)) {
+                // Канал уже открыт (для LOB вместе с транзакцией), поэтому читаем из него, а не открываем ресурс заново.
+                // copyRange копирует через буфер фиксированного размера, и память на запрос не зависит от размера файла
+                StreamUtils.copyRange(Channels.newInputStream(channel), out, position, position + count - 1);
+                return;
+            }
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (transferred < count) {
+                long written = fileChannel.transferTo(position + transferred, count - transferred, target);
+                if (written <= 0) {
+                    logger.warn("Файл аватарки {} оказался короче ожидаемого", resource);
+                    break;
+                }
+                transferred += written;
+            }
+        }
     }
 
 
-    public Page<Avatar> getAllAvatars(int page, int size) {
+    public Page<AvatarInfo> getAllAvatars(int page, int size) {
         logger.info("Был вызван метод для получения всех аватарок с пагинацией: страница={}, размер={}", page, size);
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Avatar> avatars = avatarRepository.findAll(pageable);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+        Page<AvatarInfo> avatars = avatarRepository.findAllInfo(pageable);
         logger.debug("Получено {} аватарок (страница {} из {})",
                 avatars.getNumberOfElements(), page + 1, avatars.getTotalPages());
         return avatars;
     }
 
-    private String getFileExtension(String fileName) {
-        if (fileName == null || !fileName.contains(".")) {
-            return ".dat";
+    public AvatarCacheStats getCacheStats() {
+        return avatarCache.getStats();
+    }
+
+    public Optional<AvatarReconcilerStats> getReconcilerStats() {
+        return Optional.ofNullable(orphanReconciler.getIfAvailable()).map(AvatarOrphanReconciler::getStats);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private Optional<AvatarData> findVariant(Avatar avatar, Integer size) {
+        if (size == null) {
+            return Optional.empty();
         }
-        return fileName.substring(fileName.lastIndexOf("."));
+        return avatarVariantService.findVariant(avatar, size);
     }
-}
\ No newline at end of file
+}
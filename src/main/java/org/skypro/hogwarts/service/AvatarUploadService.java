@@ -0,0 +1,203 @@
+package org.skypro.hogwarts.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.AvatarUploadRequest;
+import org.skypro.hogwarts.dto.AvatarUploadStatus;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.AvatarUpload;
+import org.skypro.hogwarts.repository.AvatarUploadRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Загрузка аватарки частями: клиент открывает загрузку, присылает куски по смещению и завершает ее.
+ * Принятые байты пишутся прямо во временный файл, а позиция хранится в avatar_uploads,
+ * поэтому после обрыва связи клиент узнает смещение и продолжает с него.
+ */
+@Service
+public class AvatarUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarUploadService.class);
+    private static final String UPLOADS_DIR = "uploads";
+
+    private final AvatarUploadRepository avatarUploadRepository;
+    private final AvatarService avatarService;
+    private final StudentService studentService;
+    private final Path uploadsDir;
+    private final long maxSize;
+    private final Duration expireAfter;
+
+    public AvatarUploadService(AvatarUploadRepository avatarUploadRepository,
+                               AvatarService avatarService,
+                               StudentService studentService,
+                               @Value("${avatars.dir.path}") String avatarsDirPath,
+                               @Value("${avatars.upload.max-size:100MB}") DataSize maxSize,
+                               @Value("${avatars.upload.expire-after:PT24H}") Duration expireAfter) {
+        this.avatarUploadRepository = avatarUploadRepository;
+        this.avatarService = avatarService;
+        this.studentService = studentService;
+        this.uploadsDir = Path.of(avatarsDirPath).resolve(UPLOADS_DIR);
+        this.maxSize = maxSize.toBytes();
+        this.expireAfter = expireAfter;
+    }
+
+    @Transactional
+    public AvatarUploadStatus startUpload(AvatarUploadRequest request) throws IOException {
+        logger.info("Был вызван метод для начала загрузки аватарки частями для студента с id: {}", request.studentId());
+        if (request.studentId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не указан id студента");
+        }
+        String mediaType = validateMediaType(request.mediaType());
+        if (request.size() <= 0 || request.size() > maxSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Размер аватарки должен быть от 1 до " + maxSize + " байт");
+        }
+        if (studentService.findStudentById(request.studentId()).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден с id: " + request.studentId());
+        }
+
+        AvatarUpload upload = new AvatarUpload(UUID.randomUUID().toString(), request.studentId(),
+                mediaType, request.size());
+        Files.createDirectories(uploadsDir);
+        Files.createFile(resolve(upload.getId()));
+        avatarUploadRepository.save(upload);
+        logger.debug("Загрузка {} открыта: ожидается {} байт", upload.getId(), upload.getTotalSize());
+        return toStatus(upload);
+    }
+
+    public Optional<AvatarUploadStatus> getStatus(String uploadId) {
+        return avatarUploadRepository.findById(uploadId).map(this::toStatus);
+    }
+
+    // Транзакции нет, пока тело читается из сети: медленный клиент не держит соединение из пула и блокировку строки.
+    // Смещение продвигается потом коротким условным UPDATE
+    public AvatarUploadStatus writeChunk(String uploadId, long offset, InputStream body) throws IOException {
+        AvatarUpload upload = findUpload(uploadId);
+        if (offset < 0 || offset > upload.getReceivedBytes()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Ожидается кусок со смещением не больше " + upload.getReceivedBytes());
+        }
+
+        long limit = upload.getTotalSize() - offset;
+        long written = 0;
+        try (FileChannel file = openPart(uploadId);
+             ReadableByteChannel source = Channels.newChannel(body)) {
+            long transferred;
+            while (written < limit && (transferred = file.transferFrom(source, offset + written, limit - written)) > 0) {
+                written += transferred;
+            }
+            if (written == limit && body.read() != -1) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Кусок выходит за объявленный размер " + upload.getTotalSize() + " байт");
+            }
+            // Смещение в БД не должно опережать данные на диске, иначе после сбоя клиент пропустит кусок
+            file.force(false);
+        }
+
+        // Если параллельный кусок уже продвинул смещение дальше, UPDATE ничего не меняет, а ответ берется из БД
+        AvatarUploadStatus status = avatarUploadRepository.advance(uploadId, offset, offset + written, Instant.now()) == 0
+                ? toStatus(findUpload(uploadId))
+                : new AvatarUploadStatus(uploadId, upload.getStudentId(), upload.getTotalSize(), offset + written);
+        logger.debug("Загрузка {}: принято {} байт со смещения {}, всего {} из {}",
+                uploadId, written, offset, status.offset(), status.size());
+        return status;
+    }
+
+    // Без общей транзакции: сброс кэша и постановка вариантов в очередь идут после фиксации строки аватарки
+    public Avatar completeUpload(String uploadId) throws IOException {
+        AvatarUpload upload = findUpload(uploadId);
+        if (upload.getReceivedBytes() < upload.getTotalSize()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Загрузка не завершена: принято "
+                    + upload.getReceivedBytes() + " из " + upload.getTotalSize() + " байт");
+        }
+        if (avatarUploadRepository.claimCompleted(uploadId) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Загрузка уже завершена: " + uploadId);
+        }
+
+        Path file = resolve(uploadId);
+        Avatar avatar;
+        try (InputStream in = Files.newInputStream(file)) {
+            avatar = avatarService.uploadAvatar(upload.getStudentId(), upload.getMediaType(), in);
+        } catch (IOException | RuntimeException e) {
+            // Файл на месте, поэтому строка возвращается и клиент может повторить завершение
+            avatarUploadRepository.save(upload);
+            throw e;
+        }
+        Files.deleteIfExists(file);
+        logger.info("Загрузка {} завершена: id аватарки={}", uploadId, avatar.getId());
+        return avatar;
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.upload.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void removeExpiredUploads() {
+        for (AvatarUpload upload : avatarUploadRepository.findByUpdatedAtBefore(Instant.now().minus(expireAfter))) {
+            try {
+                Files.deleteIfExists(resolve(upload.getId()));
+                avatarUploadRepository.delete(upload);
+                logger.info("Брошенная загрузка {} удалена: принято {} из {} байт",
+                        upload.getId(), upload.getReceivedBytes(), upload.getTotalSize());
+            } catch (IOException e) {
+                logger.warn("Не удалось удалить файл брошенной загрузки {}", upload.getId(), e);
+            }
+        }
+    }
+
+    private AvatarUpload findUpload(String uploadId) {
+        return avatarUploadRepository.findById(uploadId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Загрузка не найдена: " + uploadId));
+    }
+
+    private FileChannel openPart(String uploadId) throws IOException {
+        try {
+            return FileChannel.open(resolve(uploadId), StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            // Загрузку успели завершить или удалить как брошенную
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Загрузка не найдена: " + uploadId);
+        }
+    }
+
+    private static String validateMediaType(String mediaType) {
+        if (mediaType == null || mediaType.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не указан тип аватарки");
+        }
+        try {
+            MediaType parsed = MediaType.parseMediaType(mediaType);
+            if (!"image".equals(parsed.getType()) || parsed.isWildcardSubtype()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Аватарка должна быть изображением: " + mediaType);
+            }
+            return parsed.toString();
+        } catch (InvalidMediaTypeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный тип аватарки: " + mediaType);
+        }
+    }
+
+    private Path resolve(String uploadId) {
+        return uploadsDir.resolve(uploadId + ".part");
+    }
+
+    private AvatarUploadStatus toStatus(AvatarUpload upload) {
+        return new AvatarUploadStatus(upload.getId(), upload.getStudentId(), upload.getTotalSize(),
+                upload.getReceivedBytes());
+    }
+}
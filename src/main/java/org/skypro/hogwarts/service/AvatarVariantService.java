@@ -0,0 +1,214 @@
+package org.skypro.hogwarts.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.AvatarData;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.skypro.hogwarts.storage.AvatarStorage;
+import org.skypro.hogwarts.storage.AvatarStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class AvatarVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarVariantService.class);
+    private static final String VARIANT_MEDIA_TYPE = "image/jpeg";
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarStorage avatarStorage;
+    private final AvatarStore avatarStore;
+    private final TransactionTemplate readOnlyTransaction;
+    private final List<Integer> sizes;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public AvatarVariantService(AvatarRepository avatarRepository,
+                                AvatarStorage avatarStorage,
+                                AvatarStore avatarStore,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${avatars.variants.sizes:64,128,256}") List<Integer> sizes,
+                                @Value("${avatars.variants.workers:2}") int workers,
+                                @Value("${avatars.variants.queue-capacity:100}") int queueCapacity,
+                                @Value("${avatars.variants.max-pixels:25000000}") long maxPixels) {
+        this.avatarRepository = avatarRepository;
+        this.avatarStorage = avatarStorage;
+        this.avatarStore = avatarStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.sizes = sizes.stream().sorted().toList();
+        this.maxPixels = maxPixels;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        logger.info("Сервис уменьшенных копий аватарок инициализирован: размеры={}, потоков={}, очередь={}",
+                this.sizes, workers, queueCapacity);
+    }
+
+    public void submit(Avatar avatar) {
+        String hash = avatar.getContentDigest();
+        if (hash == null || !inFlight.add(hash)) {
+            return;
+        }
+        Long avatarId = avatar.getId();
+        try {
+            executor.execute(() -> {
+                try {
+                    generateVariants(avatarId, hash);
+                } catch (RuntimeException e) {
+                    logger.error("Не удалось построить уменьшенные копии аватарки id={}", avatarId, e);
+                } finally {
+                    inFlight.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash);
+            logger.warn("Очередь построения уменьшенных копий заполнена, аватарка id={} пропущена", avatarId);
+        }
+    }
+
+    public Optional<AvatarData> findVariant(Avatar avatar, int requestedSize) {
+        String hash = avatar.getContentDigest();
+        if (hash == null) {
+            return Optional.empty();
+        }
+        Optional<Integer> size = sizes.stream().filter(value -> value >= requestedSize).findFirst();
+        if (size.isEmpty()) {
+            return Optional.empty();
+        }
+        Path variant = avatarStore.resolveVariant(hash, size.get());
+        if (Files.exists(variant)) {
+            return Optional.of(new AvatarData(avatar, new FileSystemResource(variant),
+                    VARIANT_MEDIA_TYPE, hash + "-" + size.get()));
+        }
+        if (Files.exists(avatarStore.resolveVariantMarker(hash, size.get()))) {
+            return Optional.empty();
+        }
+        // Копии для старых аватарок строятся при первом обращении, пока отдаем оригинал
+        submit(avatar);
+        return Optional.empty();
+    }
+
+    private void generateVariants(Long avatarId, String hash) {
+        BufferedImage original = readOnlyTransaction.execute(status -> readOriginal(avatarId));
+        if (original == null) {
+            logger.warn("Не удалось декодировать изображение аватарки id={}, копии не построены", avatarId);
+        }
+
+        for (int size : sizes) {
+            if (Files.exists(avatarStore.resolveVariant(hash, size))) {
+                continue;
+            }
+            try {
+                // Иначе каждый запрос этого размера заново ставил бы в очередь декодирование всего изображения
+                if (original == null || Math.max(original.getWidth(), original.getHeight()) <= size) {
+                    avatarStore.markVariantSkipped(hash, size);
+                    continue;
+                }
+                Path tempFile = avatarStore.createTempFile();
+                try {
+                    ImageIO.write(scale(original, size), "jpg", tempFile.toFile());
+                    avatarStore.storeVariant(hash, size, tempFile);
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        logger.debug("Уменьшенные копии аватарки id={} построены", avatarId);
+    }
+
+    private BufferedImage readOriginal(Long avatarId) {
+        Optional<Resource> resource = avatarRepository.findById(avatarId)
+                .flatMap(avatarStorage::readFromFile);
+        if (resource.isEmpty()) {
+            throw new UncheckedIOException(new FileNotFoundException("Содержимое аватарки id=" + avatarId + " не найдено"));
+        }
+        try (InputStream in = resource.get().getInputStream();
+             ImageInputStream image = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = image == null ? null : ImageIO.getImageReaders(image);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(image, true, true);
+                // Размеры берутся из заголовка: небольшой файл может объявить картинку, которая не поместится в куче
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    logger.warn("Аватарка id={} объявляет {} пикселей при лимите {}, копии не строятся",
+                            avatarId, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IIOException e) {
+            logger.debug("Изображение аватарки id={} повреждено", avatarId, e);
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BufferedImage scale(BufferedImage original, int size) {
+        double ratio = (double) size / Math.max(original.getWidth(), original.getHeight());
+        int width = Math.max(1, (int) Math.round(original.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * ratio));
+
+        // JPEG не поддерживает прозрачность, поэтому фон заливаем белым
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,36 @@
+package org.skypro.hogwarts.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.skypro.hogwarts.config.EntityCacheConfiguration;
+import org.skypro.hogwarts.dto.EntityCacheStats;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class EntityCacheService {
+    private final Statistics statistics;
+
+    public EntityCacheService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public List<EntityCacheStats> getStats() {
+        List<EntityCacheStats> stats = new ArrayList<>();
+        for (String region : EntityCacheConfiguration.regionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics == null) {
+                continue;
+            }
+            long hits = regionStatistics.getHitCount();
+            long misses = regionStatistics.getMissCount();
+            long requests = hits + misses;
+            stats.add(new EntityCacheStats(region, hits, misses, regionStatistics.getPutCount(),
+                    requests == 0 ? 0.0 : (double) hits / requests));
+        }
+        return stats;
+    }
+}
@@ -2,22 +2,73 @@ package org.skypro.hogwarts.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.KeysetPage;
 import org.skypro.hogwarts.model.Faculty;
 import org.skypro.hogwarts.model.Student;
 import org.skypro.hogwarts.repository.FacultyRepository;
+import org.skypro.hogwarts.repository.StudentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
 public class FacultyService {
     private static final Logger logger = LoggerFactory.getLogger(FacultyService.class);
     private final FacultyRepository facultyRepository;
+    private final StudentRepository studentRepository;
+    private final int maxPageSize;
+
+    // Порядок студентов в списке факультета
+    public enum RosterSort {
+        ID,
+        NAME,
+        AGE;
+
+        public static RosterSort from(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Неизвестный порядок сортировки: " + value);
+            }
+        }
+    }
+
+    // Курсор списка факультета при сортировке по имени или возрасту: "ключ:id" последнего студента страницы.
+    // Ключ сортировки хранится в самом курсоре, так что удаление этого студента не обрывает листание.
+    // Имя кодируется в Base64, чтобы курсор оставался ASCII и помещался в заголовок X-Next-Cursor
+    private record RosterCursor(String key, long id) {
+        static RosterCursor parse(String value, String startKey) {
+            if (value == null) {
+                return new RosterCursor(startKey, 0);
+            }
+            int separator = value.indexOf(':');
+            try {
+                return new RosterCursor(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw badCursor(value);
+            }
+        }
+
+        static String of(String key, long id) {
+            return key + ":" + id;
+        }
+    }
 
     @Autowired
-    public FacultyService(FacultyRepository facultyRepository) {
+    public FacultyService(FacultyRepository facultyRepository,
+                          StudentRepository studentRepository,
+                          @Value("${pagination.max-limit:1000}") int maxPageSize) {
         this.facultyRepository = facultyRepository;
+        this.studentRepository = studentRepository;
+        this.maxPageSize = maxPageSize;
         logger.info("Сервис факультетов инициализирован");
     }
 
@@ -72,36 +123,56 @@ public class FacultyService {
         }
     }
 
-    public List<Faculty> getAllFaculties() {
-        logger.info("Был вызван метод для получения всех факультетов");
+    public KeysetPage<Faculty> getAllFaculties(Long afterId, int limit) {
+        logger.info("Был вызван метод для получения всех факультетов после id: {}", afterId);
 
-        List<Faculty> faculties = facultyRepository.findAll();
+        List<Faculty> faculties = facultyRepository.findByIdGreaterThanOrderByIdAsc(afterIdOrStart(afterId),
+                toLimit(limit));
         logger.debug("Получено {} факультетов", faculties.size());
-        return faculties;
+        return byId(faculties, limit);
     }
 
-    public List<Faculty> getFacultiesByColor(String color) {
+    public KeysetPage<Faculty> getFacultiesByColor(String color, Long afterId, int limit) {
         logger.info("Был вызван метод для получения факультетов по цвету: {}", color);
-        return facultyRepository.findByColor(color);
+        return byId(facultyRepository.findByColorAndIdGreaterThanOrderByIdAsc(color, afterIdOrStart(afterId),
+                toLimit(limit)), limit);
     }
 
-    public List<Faculty> findFacultiesByNameOrColor(String searchTerm) {
+    public KeysetPage<Faculty> findFacultiesByNameOrColor(String searchTerm, Long afterId, int limit) {
         logger.info("Был вызван метод для поиска факультетов по названию или цвету: {}", searchTerm);
-        return facultyRepository.findByNameIgnoreCaseOrColorIgnoreCase(searchTerm, searchTerm);
+        return byId(facultyRepository.findByNameOrColorIgnoreCaseAfter(searchTerm, afterIdOrStart(afterId),
+                toLimit(limit)), limit);
     }
 
-    public List<Student> getFacultyStudents(Long facultyId) {
-        logger.info("Был вызван метод для получения студентов факультета по id: {}", facultyId);
-
-        Faculty faculty = getFacultyById(facultyId);
-        if (faculty != null) {
-            List<Student> students = faculty.getStudents();
-            logger.debug("Получено {} студентов для факультета {}", students.size(), facultyId);
-            return students;
-        }
+    public KeysetPage<Student> getFacultyStudents(Long facultyId, RosterSort sort, String after, int limit) {
+        logger.info("Был вызван метод для получения студентов факультета по id: {}, порядок: {}", facultyId, sort);
+
+        Limit pageLimit = toLimit(limit);
+        List<Student> students = switch (sort) {
+            case ID -> studentRepository.findByFacultyIdAndIdGreaterThanOrderByIdAsc(facultyId, parseId(after),
+                    pageLimit);
+            case NAME -> {
+                RosterCursor cursor = RosterCursor.parse(after, encodeName(""));
+                yield studentRepository.findByFacultyIdOrderedByNameAfter(facultyId, decodeName(cursor.key()),
+                        cursor.id(), pageLimit);
+            }
+            case AGE -> {
+                RosterCursor cursor = RosterCursor.parse(after, String.valueOf(Integer.MIN_VALUE));
+                yield studentRepository.findByFacultyIdOrderedByAgeAfter(facultyId, parseAge(cursor.key()),
+                        cursor.id(), pageLimit);
+            }
+        };
+        logger.debug("Получено {} студентов для факультета {}", students.size(), facultyId);
+        return KeysetPage.of(students, limit, student -> switch (sort) {
+            case ID -> String.valueOf(student.getId());
+            case NAME -> RosterCursor.of(encodeName(student.getName()), student.getId());
+            case AGE -> RosterCursor.of(String.valueOf(student.getAge()), student.getId());
+        });
+    }
 
-        logger.warn("Невозможно получить студентов: Факультет не найден с id = {}", facultyId);
-        return List.of();
+    public long countFacultyStudents(Long facultyId) {
+        logger.info("Был вызван метод для подсчета студентов факультета по id: {}", facultyId);
+        return studentRepository.countByFacultyId(facultyId);
     }
 
     public String getLongestFacultyName() {
@@ -115,4 +186,55 @@ public class FacultyService {
         logger.debug("Самое длинное название факультета: {}", longestName);
         return longestName;
     }
+
+    private Limit toLimit(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Размер страницы должен быть от 1 до " + maxPageSize);
+        }
+        return Limit.of(limit);
+    }
+
+    private static Long afterIdOrStart(Long afterId) {
+        return afterId == null ? 0L : afterId;
+    }
+
+    private static long parseId(String value) {
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw badCursor(value);
+        }
+    }
+
+    private static int parseAge(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw badCursor(value);
+        }
+    }
+
+    private static String encodeName(String name) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeName(String value) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw badCursor(value);
+        }
+    }
+
+    private static ResponseStatusException badCursor(String value) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор: " + value);
+    }
+
+    private static KeysetPage<Faculty> byId(List<Faculty> faculties, int limit) {
+        return KeysetPage.of(faculties, limit, faculty -> String.valueOf(faculty.getId()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package org.skypro.hogwarts.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.StudentAge;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Индекс студентов по возрасту в памяти: для каждого возраста отсортированный массив id
+ * без упаковки в Long. Возрастов немного, поэтому выборка по диапазону — это обход нескольких
+ * корзин с двоичным поиском позиции курсора, а сами студенты потом читаются одним запросом по id.
+ * Изменения приходят из {@link StudentChangeListener} после фиксации транзакций; изменения в обход JPA
+ * и каскадные удаления подхватывает периодическая пересборка.
+ */
+@Component
+@ConditionalOnProperty(name = "students.age-index.enabled", havingValue = "true")
+public class StudentAgeIndex {
+    private static final Logger logger = LoggerFactory.getLogger(StudentAgeIndex.class);
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private volatile ConcurrentSkipListMap<Integer, Bucket> buckets = new ConcurrentSkipListMap<>();
+    // Пока идет пересборка, изменения пишутся и в новую карту, чтобы не потеряться при подмене
+    private volatile ConcurrentSkipListMap<Integer, Bucket> rebuilding;
+
+    // Страница выборки по диапазону: id в порядке (возраст, id) и возраст последнего из них для курсора
+    public record AgeRangePage(long[] ids, int lastAge) {
+        static final AgeRangePage EMPTY = new AgeRangePage(new long[0], 0);
+    }
+
+    public StudentAgeIndex(StudentRepository studentRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        rebuild();
+        logger.info("Индекс возрастов студентов построен: возрастов={}", buckets.size());
+    }
+
+    @Scheduled(initialDelayString = "${students.age-index.rebuild-interval-ms:600000}",
+            fixedDelayString = "${students.age-index.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        ConcurrentSkipListMap<Integer, Bucket> fresh = new ConcurrentSkipListMap<>();
+        rebuilding = fresh;
+        try {
+            Long loaded = readOnlyTransaction.execute(status -> {
+                long count = 0;
+                // Строки идут по возрастанию id, так что каждая вставка — дописывание в конец корзины
+                try (Stream<StudentAge> students = studentRepository.streamAgesBy()) {
+                    for (StudentAge student : (Iterable<StudentAge>) students::iterator) {
+                        add(fresh, student.id(), student.age());
+                        count++;
+                    }
+                }
+                return count;
+            });
+            buckets = fresh;
+            logger.debug("Индекс возрастов студентов пересобран: студентов={}", loaded);
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    public void add(long id, int age) {
+        add(buckets, id, age);
+        ConcurrentSkipListMap<Integer, Bucket> target = rebuilding;
+        if (target != null) {
+            add(target, id, age);
+        }
+    }
+
+    public void remove(long id, int age) {
+        remove(buckets, id, age);
+        ConcurrentSkipListMap<Integer, Bucket> target = rebuilding;
+        if (target != null) {
+            remove(target, id, age);
+        }
+    }
+
+    public void move(long id, int oldAge, int newAge) {
+        remove(id, oldAge);
+        add(id, newAge);
+    }
+
+    public long[] findByAge(int age, long afterId, int limit) {
+        Bucket bucket = buckets.get(age);
+        if (bucket == null) {
+            return new long[0];
+        }
+        long[] ids = new long[limit];
+        return Arrays.copyOf(ids, bucket.copyAfter(afterId, ids, 0, limit));
+    }
+
+    // Id студентов с возрастом от minAge до maxAge в порядке (возраст, id), начиная после курсора
+    public AgeRangePage findByAgeRange(int minAge, int maxAge, int afterAge, long afterId, int limit) {
+        if (minAge > maxAge || afterAge > maxAge) {
+            return AgeRangePage.EMPTY;
+        }
+        long[] ids = new long[limit];
+        int found = 0;
+        int lastAge = 0;
+        NavigableMap<Integer, Bucket> range = buckets.subMap(Math.max(minAge, afterAge), true, maxAge, true);
+        for (Map.Entry<Integer, Bucket> entry : range.entrySet()) {
+            long after = entry.getKey() == afterAge ? afterId : Long.MIN_VALUE;
+            int copied = entry.getValue().copyAfter(after, ids, found, limit - found);
+            if (copied > 0) {
+                found += copied;
+                lastAge = entry.getKey();
+            }
+            if (found == limit) {
+                break;
+            }
+        }
+        return new AgeRangePage(Arrays.copyOf(ids, found), lastAge);
+    }
+
+    private static void add(ConcurrentSkipListMap<Integer, Bucket> map, long id, int age) {
+        map.computeIfAbsent(age, key -> new Bucket()).add(id);
+    }
+
+    private static void remove(ConcurrentSkipListMap<Integer, Bucket> map, long id, int age) {
+        Bucket bucket = map.get(age);
+        if (bucket != null) {
+            bucket.remove(id);
+        }
+    }
+
+    private static final class Bucket {
+        private long[] ids = new long[16];
+        private int size;
+
+        synchronized void add(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        synchronized void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        synchronized int copyAfter(long afterId, long[] target, int offset, int max) {
+            int position = Arrays.binarySearch(ids, 0, size, afterId);
+            int from = position >= 0 ? position + 1 : -position - 1;
+            int count = Math.min(size - from, max);
+            System.arraycopy(ids, from, target, offset, count);
+            return count;
+        }
+    }
+}
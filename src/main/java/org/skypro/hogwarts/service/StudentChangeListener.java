@@ -0,0 +1,95 @@
+package org.skypro.hogwarts.service;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.skypro.hogwarts.model.Student;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.Objects;
+
+/**
+ * Слушатель сущности Student, через который изменения попадают в статистику, индекс возрастов и индекс имен.
+ * Hibernate создает его через контейнер бинов Spring, поэтому зависимости передаются в конструктор.
+ * Структуры в памяти меняются только после фиксации транзакции, чтобы откаченная запись в них не попала.
+ */
+public class StudentChangeListener {
+    private final StudentStatistics statistics;
+    private final ObjectProvider<StudentAgeIndex> ageIndex;
+    private final ObjectProvider<StudentNameIndex> nameIndex;
+
+    public StudentChangeListener(StudentStatistics statistics,
+                                 ObjectProvider<StudentAgeIndex> ageIndex,
+                                 ObjectProvider<StudentNameIndex> nameIndex) {
+        this.statistics = statistics;
+        this.ageIndex = ageIndex;
+        this.nameIndex = nameIndex;
+    }
+
+    @PostLoad
+    public void onLoad(Student student) {
+        student.setPersistedAge(student.getAge());
+        student.setPersistedName(student.getName());
+    }
+
+    @PostPersist
+    public void onPersist(Student student) {
+        long id = student.getId();
+        int age = student.getAge();
+        String name = student.getName();
+        student.setPersistedAge(age);
+        student.setPersistedName(name);
+        afterCommit(() -> {
+            statistics.onCreated(age);
+            ageIndex.ifAvailable(index -> index.add(id, age));
+            nameIndex.ifAvailable(index -> index.add(id, name));
+        });
+    }
+
+    @PostUpdate
+    public void onUpdate(Student student) {
+        long id = student.getId();
+        Integer oldAge = student.getPersistedAge();
+        int newAge = student.getAge();
+        String oldName = student.getPersistedName();
+        String newName = student.getName();
+        student.setPersistedAge(newAge);
+        student.setPersistedName(newName);
+        if (oldAge != null && oldAge != newAge) {
+            afterCommit(() -> {
+                statistics.onAgeChanged(oldAge, newAge);
+                ageIndex.ifAvailable(index -> index.move(id, oldAge, newAge));
+            });
+        }
+        if (!Objects.equals(oldName, newName)) {
+            afterCommit(() -> nameIndex.ifAvailable(index -> index.rename(id, oldName, newName)));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Student student) {
+        long id = student.getId();
+        int age = student.getPersistedAge() != null ? student.getPersistedAge() : student.getAge();
+        String name = student.getPersistedName() != null ? student.getPersistedName() : student.getName();
+        afterCommit(() -> {
+            statistics.onDeleted(age);
+            ageIndex.ifAvailable(index -> index.remove(id, age));
+            nameIndex.ifAvailable(index -> index.remove(id, name));
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
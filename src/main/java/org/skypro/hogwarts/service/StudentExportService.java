@@ -0,0 +1,135 @@
+package org.skypro.hogwarts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка всей таблицы студентов потоком. Строки читаются курсором БД порциями по fetch size
+ * и сразу пишутся в ответ, а прочитанные сущности отсоединяются от контекста персистентности,
+ * так что расход памяти не зависит от числа студентов.
+ */
+@Service
+public class StudentExportService {
+    private static final Logger logger = LoggerFactory.getLogger(StudentExportService.class);
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public static Format from(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Неизвестный формат выгрузки: " + value);
+            }
+        }
+    }
+
+    private record Row(Long id, String name, int age, Long facultyId) {
+    }
+
+    private final StudentRepository studentRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final int flushInterval;
+
+    public StudentExportService(StudentRepository studentRepository,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                @Value("${students.export.flush-interval:1000}") int flushInterval) {
+        this.studentRepository = studentRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.flushInterval = flushInterval;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportStudents(Format format, OutputStream out) throws IOException {
+        logger.info("Был вызван метод для выгрузки студентов в формате {}", format);
+
+        long exported = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write("id,name,age,faculty_id\n");
+        }
+        // Выгрузка не должна заполнять кэш второго уровня всей таблицей и вытеснять из него рабочие записи
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try (Stream<Student> students = studentRepository.streamAllByOrderByIdAsc()) {
+            for (Student student : (Iterable<Student>) students::iterator) {
+                // Прокси факультета отдает id без загрузки самого факультета
+                Row row = new Row(student.getId(), student.getName(), student.getAge(),
+                        student.getFaculty() != null ? student.getFaculty().getId() : null);
+                entityManager.detach(student);
+                if (format == Format.CSV) {
+                    writeCsv(writer, row);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                // Клиент получает данные по мере чтения, а не после обхода всей таблицы
+                if (++exported % flushInterval == 0) {
+                    writer.flush();
+                }
+            }
+        } finally {
+            session.setCacheMode(previousCacheMode);
+        }
+        writer.flush();
+        logger.info("Выгрузка студентов завершена: {} строк", exported);
+        return exported;
+    }
+
+    private void writeCsv(Writer writer, Row row) throws IOException {
+        writer.write(String.valueOf(row.id()));
+        writer.write(',');
+        writer.write(escapeCsv(row.name()));
+        writer.write(',');
+        writer.write(String.valueOf(row.age()));
+        writer.write(',');
+        if (row.facultyId() != null) {
+            writer.write(String.valueOf(row.facultyId()));
+        }
+        writer.write('\n');
+    }
+
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
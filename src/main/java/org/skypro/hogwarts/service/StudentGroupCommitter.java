@@ -0,0 +1,192 @@
+package org.skypro.hogwarts.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Групповая запись новых студентов. Запросы ставятся в очередь, один поток собирает их в группу
+ * до {@code students.group-commit.batch-size} штук или пока не истечет окно ожидания и сохраняет
+ * всю группу одной транзакцией с пакетной вставкой. Вызывающий поток ждет фиксации своей группы
+ * не дольше {@code students.group-commit.wait-timeout} и получает студента уже с id.
+ */
+@Service
+@ConditionalOnProperty(name = "students.group-commit.enabled", havingValue = "true")
+public class StudentGroupCommitter {
+    private static final Logger logger = LoggerFactory.getLogger(StudentGroupCommitter.class);
+    private static final long IDLE_POLL_MS = 100;
+
+    private record Pending(Student student, Long originalId, CompletableFuture<Student> result) {
+    }
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Duration waitTimeout;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public StudentGroupCommitter(StudentRepository studentRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${students.group-commit.batch-size:200}") int batchSize,
+                                 @Value("${students.group-commit.max-delay:PT0.002S}") Duration maxDelay,
+                                 @Value("${students.group-commit.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${students.group-commit.wait-timeout:PT30S}") Duration waitTimeout) {
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.waitTimeout = waitTimeout;
+        this.worker = new Thread(this::run, "student-group-commit");
+        this.worker.setDaemon(true);
+        logger.info("Групповая запись студентов включена: группа до {} записей, окно {}, очередь={}",
+                batchSize, maxDelay, queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.start();
+    }
+
+    public Student create(Student student) {
+        if (!running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Приложение останавливается");
+        }
+        Pending pending = new Pending(student, student.getId(), new CompletableFuture<>());
+        try {
+            // Заполненная очередь притормаживает вызывающих, а не копит запросы без ограничения
+            queue.put(pending);
+            if (!worker.isAlive()) {
+                // Запись попала в очередь уже после того, как поток записи ее опустошил и завершился
+                failQueued();
+            }
+            return pending.result().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Если запись еще в очереди, она не будет сохранена; если уже в группе — может быть сохранена позже
+            queue.remove(pending);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Студент не записан за " + waitTimeout.toMillis() + " мс");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание записи студента прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(batchSize);
+        try {
+            collectAndCommit(group);
+        } catch (Throwable e) {
+            logger.error("Поток групповой записи студентов остановлен из-за ошибки", e);
+        } finally {
+            // Без потока записи ожидающие никогда не дождались бы результата
+            running = false;
+            group.forEach(pending -> pending.result().completeExceptionally(unavailable()));
+            failQueued();
+        }
+    }
+
+    private void collectAndCommit(List<Pending> group) {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                // Пока шла прошлая фиксация, очередь уже накопила следующую группу
+                queue.drainTo(group, batchSize - group.size());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    queue.drainTo(group, batchSize - group.size());
+                }
+            } catch (InterruptedException e) {
+                logger.debug("Поток групповой записи студентов прерван, группа из {} записей фиксируется", group.size());
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        try {
+            List<Student> saved = transactionTemplate.execute(status -> group.stream()
+                    .map(pending -> studentRepository.save(pending.student()))
+                    .toList());
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).result().complete(saved.get(i));
+            }
+            logger.debug("Группа из {} студентов зафиксирована", group.size());
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).result().completeExceptionally(e);
+                return;
+            }
+            // Одна плохая запись не должна ронять всю группу: повторяем по одной, чтобы ошибку получил только ее автор
+            logger.warn("Групповая запись {} студентов не удалась, записи сохраняются по одной", group.size(), e);
+            for (Pending pending : group) {
+                pending.student().setId(pending.originalId());
+                try {
+                    pending.result().complete(transactionTemplate.execute(status ->
+                            studentRepository.save(pending.student())));
+                } catch (RuntimeException single) {
+                    pending.result().completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private void failQueued() {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(unavailable());
+        }
+    }
+
+    private static ResponseStatusException unavailable() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Групповая запись студентов остановлена");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Оставшиеся в очереди записи фиксируются до остановки пула соединений
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+        failQueued();
+    }
+}
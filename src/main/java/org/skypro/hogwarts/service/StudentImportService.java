@@ -0,0 +1,256 @@
+package org.skypro.hogwarts.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.StudentImportBatchResult;
+import org.skypro.hogwarts.dto.StudentImportReport;
+import org.skypro.hogwarts.dto.StudentImportRow;
+import org.skypro.hogwarts.model.Faculty;
+import org.skypro.hogwarts.model.Student;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Массовая загрузка студентов из JSON-массива или CSV. Строки читаются из запроса потоком
+ * и пишутся пачками по {@code students.import.batch-size}: каждая пачка — отдельная транзакция
+ * с пакетной вставкой JDBC, id берутся из последовательности students_seq блоками,
+ * поэтому ошибка в одной пачке не откатывает уже загруженные.
+ */
+@Service
+public class StudentImportService {
+    private static final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+
+    @FunctionalInterface
+    private interface RowReader {
+        // Возвращает null, когда строки закончились
+        StudentImportRow next() throws IOException;
+    }
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public StudentImportService(EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${students.import.batch-size:500}") int batchSize) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    public StudentImportReport importJson(InputStream in) throws IOException {
+        logger.info("Был вызван метод для массовой загрузки студентов из JSON");
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ожидается JSON-массив студентов");
+            }
+            return importRows(() -> parser.nextToken() == JsonToken.START_OBJECT
+                    ? parser.readValueAs(StudentImportRow.class)
+                    : null);
+        }
+    }
+
+    public StudentImportReport importCsv(InputStream in) throws IOException {
+        logger.info("Был вызван метод для массовой загрузки студентов из CSV");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> header = readCsvRecord(reader);
+            if (header == null) {
+                return new StudentImportReport(List.of());
+            }
+            // Столбцы ищутся по заголовку, так что подходит и файл из /student/export
+            List<String> columns = header.stream().map(String::strip).toList();
+            int nameColumn = columns.indexOf("name");
+            int ageColumn = columns.indexOf("age");
+            int facultyColumn = columns.indexOf("faculty_id");
+            if (nameColumn < 0 || ageColumn < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "В заголовке CSV нужны столбцы name и age");
+            }
+            return importRows(() -> {
+                List<String> values = readCsvRecord(reader);
+                if (values == null) {
+                    return null;
+                }
+                return new StudentImportRow(column(values, nameColumn), column(values, ageColumn),
+                        column(values, facultyColumn));
+            });
+        }
+    }
+
+    private StudentImportReport importRows(RowReader reader) {
+        List<StudentImportBatchResult> results = new ArrayList<>();
+        List<StudentImportRow> batch = new ArrayList<>(batchSize);
+        long rowNumber = 0;
+        while (true) {
+            StudentImportRow row;
+            try {
+                row = reader.next();
+            } catch (IOException | RuntimeException e) {
+                // Дальше читать поток нельзя: недочитанная пачка отмечается ошибкой, загруженные остаются
+                logger.warn("Массовая загрузка студентов прервана на строке {}", rowNumber + 1, e);
+                results.add(StudentImportBatchResult.failed(results.size() + 1, rowNumber - batch.size() + 1,
+                        batch.size() + 1, "Не удалось прочитать строку " + (rowNumber + 1) + ": " + e.getMessage()));
+                return report(results);
+            }
+            if (row == null) {
+                break;
+            }
+            rowNumber++;
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                results.add(writeBatch(results.size() + 1, rowNumber - batch.size() + 1, batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            results.add(writeBatch(results.size() + 1, rowNumber - batch.size() + 1, batch));
+        }
+        return report(results);
+    }
+
+    private StudentImportBatchResult writeBatch(int number, long firstRow, List<StudentImportRow> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Загружаемые студенты не кладутся в кэш второго уровня, иначе импорт вытеснил бы из него рабочие записи
+                Session session = entityManager.unwrap(Session.class);
+                CacheMode previousCacheMode = session.getCacheMode();
+                session.setCacheMode(CacheMode.IGNORE);
+                try {
+                    for (int i = 0; i < rows.size(); i++) {
+                        Student student = toStudent(rows.get(i), firstRow + i);
+                        entityManager.persist(student);
+                    }
+                    // Сброс одной пачкой: Hibernate группирует INSERT по hibernate.jdbc.batch_size
+                    entityManager.flush();
+                    entityManager.clear();
+                } finally {
+                    session.setCacheMode(previousCacheMode);
+                }
+            });
+            logger.debug("Пачка {} загружена: строки {}-{}", number, firstRow, firstRow + rows.size() - 1);
+            return StudentImportBatchResult.imported(number, firstRow, rows.size());
+        } catch (RuntimeException e) {
+            entityManager.clear();
+            logger.warn("Пачка {} со строки {} не загружена", number, firstRow, e);
+            return StudentImportBatchResult.failed(number, firstRow, rows.size(), rootMessage(e));
+        }
+    }
+
+    private Student toStudent(StudentImportRow row, long rowNumber) {
+        Integer age = parseNumber(row.age(), Integer::valueOf, rowNumber, "age");
+        Long facultyId = parseNumber(row.facultyId(), Long::valueOf, rowNumber, "faculty_id");
+        if (!StringUtils.hasText(row.name()) || age == null || age < 0) {
+            throw new IllegalArgumentException("Строка " + rowNumber + ": нужны имя и неотрицательный возраст");
+        }
+        Student student = new Student(row.name(), age);
+        if (facultyId != null) {
+            // Ссылка без SELECT: несуществующий факультет обнаружится на внешнем ключе при вставке
+            student.setFaculty(entityManager.getReference(Faculty.class, facultyId));
+        }
+        return student;
+    }
+
+    private StudentImportReport report(List<StudentImportBatchResult> results) {
+        StudentImportReport report = new StudentImportReport(results);
+        logger.info("Массовая загрузка студентов завершена: всего={}, загружено={}, с ошибками={}",
+                report.total(), report.imported(), report.failed());
+        return report;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    private static String column(List<String> values, int index) {
+        return index >= 0 && index < values.size() ? values.get(index) : null;
+    }
+
+    private static <T> T parseNumber(String value, Function<String, T> parser, long rowNumber, String column) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        try {
+            return parser.apply(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Строка " + rowNumber + ": " + column + " должно быть числом, получено '"
+                    + value + "'");
+        }
+    }
+
+    // Чтение одной записи CSV с полями в кавычках, как их пишет выгрузка студентов: внутри кавычек
+    // запятые и переводы строк относятся к значению, поэтому запись может занимать несколько строк.
+    // Пустые строки между записями пропускаются, null означает конец файла
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean started = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c != '"') {
+                    value.append((char) c);
+                    continue;
+                }
+                reader.mark(1);
+                if (reader.read() == '"') {
+                    value.append('"');
+                } else {
+                    reader.reset();
+                    quoted = false;
+                }
+            } else if (c == '\n') {
+                if (started) {
+                    values.add(value.toString());
+                    return values;
+                }
+                value.setLength(0);
+            } else if (c == '\r') {
+                // \r из перевода строки Windows отбрасывается, запись заканчивается на \n
+            } else if (c == '"') {
+                quoted = true;
+                started = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+                started = true;
+            } else {
+                value.append((char) c);
+                started |= !Character.isWhitespace(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Поле в кавычках не закрыто до конца файла");
+        }
+        if (!started) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,175 @@
+package org.skypro.hogwarts.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.StudentName;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Префиксный индекс имен студентов в памяти для автодополнения. Ключ — имя в нижнем регистре,
+ * значение — id и исходные имена всех студентов с таким ключом. Отсортированная карта отдает
+ * все ключи с нужным префиксом одним диапазоном, так что поиск не обращается к БД
+ * и не зависит от общего числа студентов.
+ * Изменения приходят из {@link StudentChangeListener} после фиксации транзакций, включая каскадное
+ * удаление студентов вместе с факультетом. Изменения в обход JPA подхватывает периодическая пересборка.
+ */
+@Component
+public class StudentNameIndex {
+    private static final Logger logger = LoggerFactory.getLogger(StudentNameIndex.class);
+
+    private record Entry(long[] ids, String[] names) {
+        Entry with(long id, String name) {
+            for (long existing : ids) {
+                if (existing == id) {
+                    return this;
+                }
+            }
+            long[] newIds = Arrays.copyOf(ids, ids.length + 1);
+            String[] newNames = Arrays.copyOf(names, names.length + 1);
+            newIds[ids.length] = id;
+            newNames[names.length] = name;
+            return new Entry(newIds, newNames);
+        }
+
+        Entry without(long id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    if (ids.length == 1) {
+                        return null;
+                    }
+                    long[] newIds = new long[ids.length - 1];
+                    String[] newNames = new String[names.length - 1];
+                    System.arraycopy(ids, 0, newIds, 0, i);
+                    System.arraycopy(ids, i + 1, newIds, i, ids.length - i - 1);
+                    System.arraycopy(names, 0, newNames, 0, i);
+                    System.arraycopy(names, i + 1, newNames, i, names.length - i - 1);
+                    return new Entry(newIds, newNames);
+                }
+            }
+            return this;
+        }
+    }
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private volatile ConcurrentSkipListMap<String, Entry> index = new ConcurrentSkipListMap<>();
+    // Пока идет пересборка, изменения пишутся и в новую карту, чтобы не потеряться при подмене
+    private volatile ConcurrentSkipListMap<String, Entry> rebuilding;
+
+    public StudentNameIndex(StudentRepository studentRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        rebuild();
+        logger.info("Индекс имен студентов построен: различных имен={}", index.size());
+    }
+
+    @Scheduled(initialDelayString = "${students.name-index.rebuild-interval-ms:600000}",
+            fixedDelayString = "${students.name-index.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        ConcurrentSkipListMap<String, Entry> fresh = new ConcurrentSkipListMap<>();
+        rebuilding = fresh;
+        try {
+            // Имена читаются проекцией без сущностей, поэтому контекст персистентности не растет
+            Long loaded = readOnlyTransaction.execute(status -> {
+                long count = 0;
+                try (Stream<StudentName> names = studentRepository.streamNamesBy()) {
+                    for (StudentName name : (Iterable<StudentName>) names::iterator) {
+                        add(fresh, name.id(), name.name());
+                        count++;
+                    }
+                }
+                return count;
+            });
+            index = fresh;
+            logger.debug("Индекс имен студентов пересобран: студентов={}", loaded);
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    public void add(Long id, String name) {
+        if (id == null || name == null) {
+            return;
+        }
+        add(index, id, name);
+        ConcurrentSkipListMap<String, Entry> target = rebuilding;
+        if (target != null) {
+            add(target, id, name);
+        }
+    }
+
+    public void remove(Long id, String name) {
+        if (id == null || name == null) {
+            return;
+        }
+        remove(index, id, name);
+        ConcurrentSkipListMap<String, Entry> target = rebuilding;
+        if (target != null) {
+            remove(target, id, name);
+        }
+    }
+
+    public void rename(Long id, String oldName, String newName) {
+        remove(id, oldName);
+        add(id, newName);
+    }
+
+    public List<StudentName> findByPrefix(String prefix, int limit) {
+        List<StudentName> matches = new ArrayList<>(Math.min(limit, 64));
+        for (Entry entry : range(prefix).values()) {
+            for (int i = 0; i < entry.ids().length && matches.size() < limit; i++) {
+                matches.add(new StudentName(entry.ids()[i], entry.names()[i]));
+            }
+            if (matches.size() == limit) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    public List<String> findAllNamesByPrefix(String prefix) {
+        List<String> names = new ArrayList<>();
+        for (Entry entry : range(prefix).values()) {
+            names.addAll(Arrays.asList(entry.names()));
+        }
+        return names;
+    }
+
+    private static void add(ConcurrentSkipListMap<String, Entry> map, long id, String name) {
+        map.compute(fold(name), (key, entry) -> entry == null
+                ? new Entry(new long[]{id}, new String[]{name})
+                : entry.with(id, name));
+    }
+
+    private static void remove(ConcurrentSkipListMap<String, Entry> map, long id, String name) {
+        map.computeIfPresent(fold(name), (key, entry) -> entry.without(id));
+    }
+
+    private NavigableMap<String, Entry> range(String prefix) {
+        String from = fold(prefix);
+        // Все ключи с префиксом лежат между самим префиксом и префиксом с максимальным символом
+        return index.subMap(from, true, from + Character.MAX_VALUE, false);
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
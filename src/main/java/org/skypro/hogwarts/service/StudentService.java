@@ -2,12 +2,24 @@ package org.skypro.hogwarts.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.KeysetPage;
+import org.skypro.hogwarts.dto.StudentMatch;
+import org.skypro.hogwarts.dto.StudentName;
 import org.skypro.hogwarts.model.Student;
 import org.skypro.hogwarts.model.Faculty;
 import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -15,10 +27,74 @@ import java.util.stream.Collectors;
 public class StudentService {
     private static final Logger logger = LoggerFactory.getLogger(StudentService.class);
     private final StudentRepository studentRepository;
+    private final ObjectProvider<StudentGroupCommitter> groupCommitter;
+    private final StudentStatistics studentStatistics;
+    private final StudentNameIndex studentNameIndex;
+    private final ObjectProvider<StudentAgeIndex> ageIndex;
+    private final int maxPageSize;
+
+    // Курсор выборок, упорядоченных по возрасту: "возраст:id" последнего студента страницы
+    private record AgeCursor(int age, long id) {
+        static final AgeCursor START = new AgeCursor(Integer.MIN_VALUE, 0);
+
+        static AgeCursor parse(String value) {
+            if (value == null) {
+                return START;
+            }
+            int separator = value.indexOf(':');
+            try {
+                return new AgeCursor(Integer.parseInt(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор: " + value);
+            }
+        }
+
+        static String of(Student student) {
+            return of(student.getAge(), student.getId());
+        }
+
+        static String of(int age, long id) {
+            return age + ":" + id;
+        }
+    }
+
+    // Курсор поиска по имени: "сходство:id" последнего студента страницы. Float.toString восстанавливается
+    // parseFloat без потерь, поэтому курсор точно совпадает со значением similarity в БД
+    private record SimilarityCursor(float similarity, long id) {
+        static final SimilarityCursor START = new SimilarityCursor(Float.POSITIVE_INFINITY, 0);
+
+        static SimilarityCursor parse(String value) {
+            if (value == null) {
+                return START;
+            }
+            int separator = value.indexOf(':');
+            try {
+                return new SimilarityCursor(Float.parseFloat(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор: " + value);
+            }
+        }
+
+        static String of(StudentMatch match) {
+            return match.getSimilarity() + ":" + match.getId();
+        }
+    }
 
     @Autowired
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository,
+                          ObjectProvider<StudentGroupCommitter> groupCommitter,
+                          StudentStatistics studentStatistics,
+                          StudentNameIndex studentNameIndex,
+                          ObjectProvider<StudentAgeIndex> ageIndex,
+                          @Value("${pagination.max-limit:1000}") int maxPageSize) {
         this.studentRepository = studentRepository;
+        this.groupCommitter = groupCommitter;
+        this.studentStatistics = studentStatistics;
+        this.studentNameIndex = studentNameIndex;
+        this.ageIndex = ageIndex;
+        this.maxPageSize = maxPageSize;
         logger.info("Сервис студентов инициализирован");
     }
 
@@ -26,7 +102,8 @@ public class StudentService {
         logger.info("Был вызван метод для создания студента");
         logger.debug("Создание студента: имя={}, возраст={}", student.getName(), student.getAge());
 
-        Student createdStudent = studentRepository.save(student);
+        StudentGroupCommitter committer = groupCommitter.getIfAvailable();
+        Student createdStudent = committer != null ? committer.create(student) : studentRepository.save(student);
         logger.info("Студент успешно создан с id: {}", createdStudent.getId());
         return createdStudent;
     }
@@ -70,45 +147,76 @@ public class StudentService {
     public void deleteStudent(Long id) {
         logger.info("Был вызван метод для удаления студента с id: {}", id);
 
-        if (studentRepository.existsById(id)) {
-            studentRepository.deleteById(id);
+        Optional<Student> student = studentRepository.findById(id);
+        if (student.isPresent()) {
+            studentRepository.delete(student.get());
             logger.info("Студент успешно удален: id={}", id);
         } else {
             logger.error("Невозможно удалить студента: Студент не найден с id = {}", id);
         }
     }
 
-    public List<Student> getAllStudents() {
-        logger.info("Был вызван метод для получения всех студентов");
+    public KeysetPage<Student> getAllStudents(Long afterId, int limit) {
+        logger.info("Был вызван метод для получения всех студентов после id: {}", afterId);
 
-        List<Student> students = studentRepository.findAll();
+        List<Student> students = studentRepository.findByIdGreaterThanOrderByIdAsc(afterIdOrStart(afterId), toLimit(limit));
         logger.debug("Получено {} студентов", students.size());
-        return students;
+        return byId(students, limit);
     }
 
-    public List<Student> getStudentsByAge(int age) {
+    public KeysetPage<Student> getStudentsByAge(int age, Long afterId, int limit) {
         logger.info("Был вызван метод для получения студентов по возрасту: {}", age);
-        return studentRepository.findByAge(age);
+        StudentAgeIndex index = ageIndex.getIfAvailable();
+        if (index != null) {
+            return byIndexedId(index.findByAge(age, afterIdOrStart(afterId), toLimit(limit).max()), limit);
+        }
+        return byId(studentRepository.findByAgeAndIdGreaterThanOrderByIdAsc(age, afterIdOrStart(afterId),
+                toLimit(limit)), limit);
     }
 
-    public List<Student> getStudentsByAgeBetween(int minAge, int maxAge) {
+    public KeysetPage<Student> getStudentsByAgeBetween(int minAge, int maxAge, String after, int limit) {
         logger.info("Был вызван метод для получения студентов по возрасту между: {} и {}", minAge, maxAge);
-        return studentRepository.findByAgeBetween(minAge, maxAge);
+        AgeCursor cursor = AgeCursor.parse(after);
+        StudentAgeIndex index = ageIndex.getIfAvailable();
+        if (index != null) {
+            return byIndexedAge(index.findByAgeRange(minAge, maxAge, cursor.age(), cursor.id(),
+                    toLimit(limit).max()), limit);
+        }
+        return byAge(studentRepository.findByAgeBetweenAfter(minAge, maxAge, cursor.age(), cursor.id(),
+                toLimit(limit)), limit);
     }
 
-    public List<Student> getStudentsByNameContaining(String namePart) {
+    public KeysetPage<Student> getStudentsByNameContaining(String namePart, String after, int limit) {
         logger.info("Был вызван метод для получения студентов по имени содержащему: {}", namePart);
-        return studentRepository.findByNameContainingIgnoreCase(namePart);
+        String pattern = "%" + namePart.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        SimilarityCursor cursor = SimilarityCursor.parse(after);
+        List<StudentMatch> matches = studentRepository.searchByName(namePart, pattern, cursor.similarity(),
+                cursor.id(), toLimit(limit).max());
+        String nextCursor = matches.size() < limit ? null : SimilarityCursor.of(matches.get(matches.size() - 1));
+        return new KeysetPage<>(findAllInOrder(matches.stream().map(StudentMatch::getId).toList()), nextCursor);
     }
 
-    public List<Student> getStudentsWithAgeLessThan(int age) {
+    public KeysetPage<Student> getStudentsWithAgeLessThan(int age, String after, int limit) {
         logger.info("Был вызван метод для получения студентов с возрастом меньше: {}", age);
-        return studentRepository.findByAgeLessThan(age);
+        AgeCursor cursor = AgeCursor.parse(after);
+        StudentAgeIndex index = ageIndex.getIfAvailable();
+        if (index != null) {
+            return age == Integer.MIN_VALUE ? byAge(List.of(), limit)
+                    : byIndexedAge(index.findByAgeRange(Integer.MIN_VALUE, age - 1, cursor.age(), cursor.id(),
+                    toLimit(limit).max()), limit);
+        }
+        return byAge(studentRepository.findByAgeLessThanAfter(age, cursor.age(), cursor.id(), toLimit(limit)), limit);
     }
 
-    public List<Student> getStudentsOrderedByAge() {
+    public KeysetPage<Student> getStudentsOrderedByAge(String after, int limit) {
         logger.info("Был вызван метод для получения студентов отсортированных по возрасту");
-        return studentRepository.findAllByOrderByAgeAsc();
+        AgeCursor cursor = AgeCursor.parse(after);
+        StudentAgeIndex index = ageIndex.getIfAvailable();
+        if (index != null) {
+            return byIndexedAge(index.findByAgeRange(Integer.MIN_VALUE, Integer.MAX_VALUE, cursor.age(),
+                    cursor.id(), toLimit(limit).max()), limit);
+        }
+        return byAge(studentRepository.findOrderedByAgeAfter(cursor.age(), cursor.id(), toLimit(limit)), limit);
     }
 
     public Faculty getStudentFaculty(Long studentId) {
@@ -127,7 +235,7 @@ public class StudentService {
     public Integer getTotalStudentCount() {
         logger.info("Был вызван метод для получения общего количества студентов");
 
-        Integer count = studentRepository.countAllStudents();
+        Integer count = Math.toIntExact(studentStatistics.getCount());
         logger.debug("Общее количество студентов: {}", count);
         return count;
     }
@@ -135,11 +243,16 @@ public class StudentService {
     public Double getAverageAge() {
         logger.info("Был вызван метод для получения среднего возраста студентов");
 
-        Double averageAge = studentRepository.findAverageAge();
+        Double averageAge = studentStatistics.getAverageAge();
         logger.debug("Средний возраст студентов: {}", averageAge);
         return averageAge;
     }
 
+    public Map<Integer, Long> getAgeHistogram() {
+        logger.info("Был вызван метод для получения распределения студентов по возрасту");
+        return studentStatistics.getAgeHistogram();
+    }
+
     public List<Student> getLastFiveStudents() {
         logger.info("Был вызван метод для получения последних пяти студентов");
 
@@ -151,9 +264,7 @@ public class StudentService {
     public List<String> getStudentNamesStartingWithA() {
         logger.info("Был вызван метод для получения имен студентов, начинающихся на 'А'");
 
-        List<String> names = studentRepository.findAll().stream()
-                .map(Student::getName)
-                .filter(name -> name.toUpperCase().startsWith("А"))
+        List<String> names = studentNameIndex.findAllNamesByPrefix("А").stream()
                 .map(String::toUpperCase)
                 .sorted()
                 .collect(Collectors.toList());
@@ -162,15 +273,74 @@ public class StudentService {
         return names;
     }
 
+    public List<StudentName> autocompleteStudentNames(String prefix, int limit) {
+        logger.debug("Автодополнение имен студентов по префиксу: {}", prefix);
+        return studentNameIndex.findByPrefix(prefix, toLimit(limit).max());
+    }
+
     public Double getAverageAgeWithStream() {
         logger.info("Был вызван метод для получения среднего возраста студентов через Stream API");
 
-        Double averageAge = studentRepository.findAll().stream()
-                .mapToInt(Student::getAge)
-                .average()
-                .orElse(0.0);
+        // Среднее по гистограмме возрастов: студенты из БД не загружаются
+        Map<Integer, Long> histogram = studentStatistics.getAgeHistogram();
+        long students = histogram.values().stream().mapToLong(Long::longValue).sum();
+        Double averageAge = students == 0 ? 0.0 : histogram.entrySet().stream()
+                .mapToDouble(entry -> (double) entry.getKey() * entry.getValue())
+                .sum() / students;
 
         logger.debug("Средний возраст студентов через Stream: {}", averageAge);
         return averageAge;
     }
+
+    private Limit toLimit(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Размер страницы должен быть от 1 до " + maxPageSize);
+        }
+        return Limit.of(limit);
+    }
+
+    // Одна выборка по списку id; порядок страницы задает индекс или поиск, а не БД
+    private List<Student> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Student> byId = new HashMap<>();
+        for (Student student : studentRepository.findByIdIn(ids)) {
+            byId.put(student.getId(), student);
+        }
+        List<Student> students = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Student student = byId.get(id);
+            if (student != null) {
+                students.add(student);
+            }
+        }
+        return students;
+    }
+
+    private static Long afterIdOrStart(Long afterId) {
+        return afterId == null ? 0L : afterId;
+    }
+
+    private static KeysetPage<Student> byId(List<Student> students, int limit) {
+        return KeysetPage.of(students, limit, student -> String.valueOf(student.getId()));
+    }
+
+    private static KeysetPage<Student> byAge(List<Student> students, int limit) {
+        return KeysetPage.of(students, limit, AgeCursor::of);
+    }
+
+    // Курсор берется из ответа индекса, а не из загруженных студентов: строки, удаленные между поиском
+    // и чтением или в обход индекса, выпадают из страницы, но не обрывают листание раньше времени
+    private KeysetPage<Student> byIndexedId(long[] ids, int limit) {
+        String nextCursor = ids.length < limit ? null : String.valueOf(ids[ids.length - 1]);
+        return new KeysetPage<>(findAllInOrder(Arrays.stream(ids).boxed().toList()), nextCursor);
+    }
+
+    private KeysetPage<Student> byIndexedAge(StudentAgeIndex.AgeRangePage page, int limit) {
+        long[] ids = page.ids();
+        String nextCursor = ids.length < limit ? null : AgeCursor.of(page.lastAge(), ids[ids.length - 1]);
+        return new KeysetPage<>(findAllInOrder(Arrays.stream(ids).boxed().toList()), nextCursor);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package org.skypro.hogwarts.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.repository.StudentStatisticsRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики студентов в памяти: количество, сумма возрастов и число студентов каждого возраста.
+ * Заполняются одним запросом при старте, дальше их меняет {@link StudentChangeListener}
+ * после фиксации транзакций. Изменения в обход JPA (SQL вручную, массовые запросы) подхватывает
+ * периодическая сверка с таблицей.
+ */
+@Component
+public class StudentStatistics {
+    private static final Logger logger = LoggerFactory.getLogger(StudentStatistics.class);
+
+    private final StudentStatisticsRepository statisticsRepository;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong ageSum = new AtomicLong();
+    private final ConcurrentMap<Integer, AtomicLong> histogram = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    public StudentStatistics(StudentStatisticsRepository statisticsRepository) {
+        this.statisticsRepository = statisticsRepository;
+    }
+
+    // Таблица students готова только после Liquibase и обновления схемы Hibernate
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+        logger.info("Статистика студентов загружена: количество={}, возрастов={}", count.get(), histogram.size());
+    }
+
+    @Scheduled(initialDelayString = "${students.statistics.reconcile-interval-ms:300000}",
+            fixedDelayString = "${students.statistics.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        Map<Integer, Long> actual = statisticsRepository.countByAge();
+        long actualCount = actual.values().stream().mapToLong(Long::longValue).sum();
+        long actualAgeSum = actual.entrySet().stream().mapToLong(entry -> (long) entry.getKey() * entry.getValue()).sum();
+        if (seeded && (actualCount != count.get() || actualAgeSum != ageSum.get())) {
+            logger.warn("Статистика студентов разошлась с таблицей: количество {} -> {}, сумма возрастов {} -> {}",
+                    count.get(), actualCount, ageSum.get(), actualAgeSum);
+        }
+
+        histogram.keySet().retainAll(actual.keySet());
+        actual.forEach((age, students) -> histogram.computeIfAbsent(age, key -> new AtomicLong()).set(students));
+        count.set(actualCount);
+        ageSum.set(actualAgeSum);
+        seeded = true;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public Double getAverageAge() {
+        long students = count.get();
+        return students == 0 ? null : (double) ageSum.get() / students;
+    }
+
+    public Map<Integer, Long> getAgeHistogram() {
+        Map<Integer, Long> snapshot = new TreeMap<>();
+        histogram.forEach((age, students) -> {
+            if (students.get() > 0) {
+                snapshot.put(age, students.get());
+            }
+        });
+        return snapshot;
+    }
+
+    void onCreated(int age) {
+        apply(age, 1);
+    }
+
+    void onDeleted(int age) {
+        apply(age, -1);
+    }
+
+    void onAgeChanged(int oldAge, int newAge) {
+        if (oldAge != newAge) {
+            apply(oldAge, -1);
+            apply(newAge, 1);
+        }
+    }
+
+    // Та же блокировка, что у reconcile: изменение, зафиксированное после снимка таблицы, применяется
+    // поверх результата сверки, а не теряется при перезаписи счетчиков
+    private synchronized void apply(int age, long delta) {
+        count.addAndGet(delta);
+        ageSum.addAndGet(age * delta);
+        histogram.computeIfAbsent(age, key -> new AtomicLong()).addAndGet(delta);
+    }
+}
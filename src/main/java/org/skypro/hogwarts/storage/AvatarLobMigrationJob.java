@@ -0,0 +1,180 @@
+package org.skypro.hogwarts.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.JobCheckpoint;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.skypro.hogwarts.repository.JobCheckpointRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переносит изображения из LOB-колонки avatars.data в файловое хранилище.
+ * Каждый запуск обрабатывает одну пачку по возрастанию id и сохраняет позицию в job_checkpoints,
+ * поэтому после перезапуска приложения перенос продолжается с того же места.
+ */
+@Component
+@ConditionalOnProperty(name = "avatars.migration.enabled", havingValue = "true")
+public class AvatarLobMigrationJob {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarLobMigrationJob.class);
+    static final String CHECKPOINT_NAME = "avatar-lob-migration";
+
+    private final AvatarRepository avatarRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final AvatarStore avatarStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long maxBytesPerSecond;
+
+    public AvatarLobMigrationJob(AvatarRepository avatarRepository,
+                                 JobCheckpointRepository jobCheckpointRepository,
+                                 AvatarStore avatarStore,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${avatars.migration.batch-size:100}") int batchSize,
+                                 @Value("${avatars.migration.max-bytes-per-second:5242880}") long maxBytesPerSecond,
+                                 @Value("${avatars.storage.mode:dual}") AvatarStorageMode storageMode) {
+        if (storageMode == AvatarStorageMode.DATABASE) {
+            // Приложение продолжает читать аватарки из avatars.data, перенос оставил бы их без содержимого
+            throw new IllegalStateException("Перенос аватарок из БД нельзя включать в режиме хранения database");
+        }
+        this.avatarRepository = avatarRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.avatarStore = avatarStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        logger.info("Перенос аватарок из БД включен: размер пачки={}, лимит={} байт/с", batchSize, maxBytesPerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.migration.interval-ms:5000}")
+    public void migrateNextBatch() {
+        long afterId = jobCheckpointRepository.findById(CHECKPOINT_NAME)
+                .map(JobCheckpoint::getPosition)
+                .orElse(0L);
+        List<Long> ids = avatarRepository.findIdsWithDataAfter(afterId, Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            if (afterId > 0) {
+                // Проход завершен: следующий начнется сначала и подберет пропущенные или новые записи
+                logger.info("Перенос аватарок из БД завершил проход до id={}", afterId);
+                saveCheckpoint(0);
+            }
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        long bytes = 0;
+        int migrated = 0;
+        long position = afterId;
+        for (Long id : ids) {
+            position = id;
+            try {
+                bytes += transactionTemplate.execute(status -> migrate(id));
+                migrated++;
+            } catch (RuntimeException e) {
+                logger.error("Не удалось перенести аватарку id={} из БД в файловое хранилище", id, e);
+            }
+            if (!throttle(startedAt, bytes)) {
+                break;
+            }
+        }
+        saveCheckpoint(position);
+        logger.info("Перенесено {} из {} аватарок ({} байт), позиция id={}", migrated, ids.size(), bytes, position);
+    }
+
+    private long migrate(Long id) {
+        Avatar avatar = avatarRepository.findById(id).orElse(null);
+        if (avatar == null || avatar.getData() == null) {
+            return 0;
+        }
+
+        StoredContent stored;
+        String lobHash;
+        String fileHash;
+        try {
+            stored = findStoredCopy(avatar);
+            if (stored == null) {
+                try (InputStream in = avatar.getData().getBinaryStream()) {
+                    stored = avatarStore.store(in);
+                }
+                lobHash = stored.hash();
+            } else {
+                // Готовый файл найден по имени, поэтому сверяем его с LOB, а не доверяем имени и размеру
+                try (InputStream in = avatar.getData().getBinaryStream()) {
+                    lobHash = ContentHashing.hash(in);
+                }
+            }
+            try (InputStream in = Files.newInputStream(stored.path())) {
+                fileHash = ContentHashing.hash(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось прочитать LOB аватарки id=" + id, e);
+        }
+
+        if (stored.size() != avatar.getFileSize() || !lobHash.equals(fileHash)
+                || (avatar.getContentDigest() != null && !avatar.getContentDigest().equals(lobHash))) {
+            throw new IllegalStateException("Содержимое аватарки id=" + id + " не совпало после переноса: размер "
+                    + stored.size() + " вместо " + avatar.getFileSize() + ", хеш файла " + fileHash
+                    + " вместо " + lobHash);
+        }
+
+        avatarRepository.unlinkData(id);
+        avatarRepository.moveDataToFile(id, stored.path().toString(), stored.hash());
+        logger.debug("Аватарка id={} перенесена в файл {}", id, stored.path());
+        return stored.size();
+    }
+
+    // В режиме dual файл уже лежит в хранилище и учтен в счетчике ссылок
+    private StoredContent findStoredCopy(Avatar avatar) throws IOException {
+        if (avatar.getContentDigest() == null || avatar.getFilePath() == null) {
+            return null;
+        }
+        Path path = avatarStore.resolve(avatar.getContentDigest());
+        if (!path.equals(Path.of(avatar.getFilePath())) || !Files.exists(path)) {
+            return null;
+        }
+        return new StoredContent(avatar.getContentDigest(), Files.size(path), path);
+    }
+
+    private boolean throttle(long startedAt, long bytes) {
+        if (maxBytesPerSecond <= 0) {
+            return true;
+        }
+        long expectedNanos = TimeUnit.SECONDS.toNanos(bytes) / maxBytesPerSecond;
+        long sleepNanos = expectedNanos - (System.nanoTime() - startedAt);
+        if (sleepNanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void saveCheckpoint(long position) {
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(CHECKPOINT_NAME)
+                .orElseGet(() -> new JobCheckpoint(CHECKPOINT_NAME, position));
+        checkpoint.setPosition(position);
+        checkpoint.setUpdatedAt(Instant.now());
+        jobCheckpointRepository.save(checkpoint);
+    }
+}
@@ -0,0 +1,348 @@
+package org.skypro.hogwarts.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.dto.AvatarReconcilerStats;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.JobCheckpoint;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.skypro.hogwarts.repository.JobCheckpointRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ищет файлы аватарок, на которые не ссылается ни одна строка avatars, и удаляет их или переносит в карантин.
+ * Директории обходятся в порядке шардов {@code ab/cd} со скоростью не выше {@code avatars.reconciler.max-files-per-second}.
+ * Запуск заканчивается на границе директории, как только проверено {@code avatars.reconciler.max-files-per-run} файлов,
+ * а номер следующего шарда сохраняется в job_checkpoints.
+ * После полного прохода удаляются строки без студента вместе с их LOB.
+ */
+@Component
+@ConditionalOnProperty(name = "avatars.reconciler.enabled", havingValue = "true")
+public class AvatarOrphanReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarOrphanReconciler.class);
+    static final String CHECKPOINT_NAME = "avatar-orphan-reconciler";
+    private static final Pattern SHARD_NAME = Pattern.compile("[0-9a-f]{2}");
+    private static final Pattern CONTENT_NAME = Pattern.compile("([0-9a-f]{64})(-\\d+\\.(jpg|original))?");
+    private static final String TEMP_DIR = "tmp";
+    private static final String QUARANTINE_DIR = "quarantine";
+
+    public enum Action {
+        DELETE,
+        QUARANTINE
+    }
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarContentRepository avatarContentRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final AvatarStorage avatarStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final Path rootPath;
+    private final Action action;
+    private final int maxFilesPerRun;
+    private final int maxFilesPerSecond;
+    private final int batchSize;
+    private final Duration minAge;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong orphanFiles = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong bytesQuarantined = new AtomicLong();
+    private final AtomicLong orphanRows = new AtomicLong();
+    private final AtomicLong position = new AtomicLong();
+    private final AtomicReference<Instant> lastRunAt = new AtomicReference<>();
+
+    public AvatarOrphanReconciler(AvatarRepository avatarRepository,
+                                  AvatarContentRepository avatarContentRepository,
+                                  JobCheckpointRepository jobCheckpointRepository,
+                                  AvatarStorage avatarStorage,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${avatars.dir.path}") String avatarsDirPath,
+                                  @Value("${avatars.reconciler.action:quarantine}") Action action,
+                                  @Value("${avatars.reconciler.max-files-per-run:5000}") int maxFilesPerRun,
+                                  @Value("${avatars.reconciler.max-files-per-second:500}") int maxFilesPerSecond,
+                                  @Value("${avatars.reconciler.batch-size:500}") int batchSize,
+                                  @Value("${avatars.reconciler.min-age:PT1H}") Duration minAge) {
+        this.avatarRepository = avatarRepository;
+        this.avatarContentRepository = avatarContentRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.avatarStorage = avatarStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rootPath = Path.of(avatarsDirPath);
+        this.action = action;
+        this.maxFilesPerRun = maxFilesPerRun;
+        this.maxFilesPerSecond = maxFilesPerSecond;
+        this.batchSize = batchSize;
+        this.minAge = minAge;
+        logger.info("Поиск осиротевших аватарок включен: действие={}, лимит={} файлов за запуск", action, maxFilesPerRun);
+    }
+
+    @Scheduled(initialDelayString = "${avatars.reconciler.interval-ms:3600000}",
+            fixedDelayString = "${avatars.reconciler.interval-ms:3600000}")
+    public void reconcile() {
+        long startPosition = jobCheckpointRepository.findById(CHECKPOINT_NAME)
+                .map(JobCheckpoint::getPosition)
+                .orElse(0L);
+        ScanBudget budget = new ScanBudget();
+        long nextPosition;
+        try {
+            nextPosition = scan(startPosition, budget);
+        } catch (IOException e) {
+            logger.error("Не удалось обойти директорию аватарок {}", rootPath, e);
+            return;
+        }
+
+        if (nextPosition < 0) {
+            // Проход по файлам завершен: чистим базу и начинаем следующий проход сначала
+            removeStaleTempFiles();
+            removeDanglingRows();
+            nextPosition = 0;
+            logger.info("Поиск осиротевших аватарок завершил проход, освобождено всего {} байт", bytesReclaimed.get());
+        }
+        saveCheckpoint(nextPosition);
+        position.set(nextPosition);
+        runs.incrementAndGet();
+        lastRunAt.set(Instant.now());
+        logger.debug("Поиск осиротевших аватарок: проверено {} файлов, следующая позиция {}",
+                budget.scanned, nextPosition);
+    }
+
+    public AvatarReconcilerStats getStats() {
+        return new AvatarReconcilerStats(runs.get(), filesScanned.get(), orphanFiles.get(), bytesReclaimed.get(),
+                bytesQuarantined.get(), orphanRows.get(), position.get(), lastRunAt.get());
+    }
+
+    // Позиция 0 — плоская директория старых аватарок, 1 + номер шарда — директория ab/cd; -1 — проход окончен
+    private long scan(long startPosition, ScanBudget budget) throws IOException {
+        if (!Files.isDirectory(rootPath)) {
+            return -1;
+        }
+        if (startPosition == 0) {
+            scanDirectory(rootPath, true, budget);
+        }
+        for (Path top : listShards(rootPath)) {
+            int topIndex = Integer.parseInt(top.getFileName().toString(), 16);
+            if (1 + ((topIndex << 8) | 0xff) < startPosition) {
+                continue;
+            }
+            for (Path shard : listShards(top)) {
+                long shardPosition = 1 + ((topIndex << 8) | Integer.parseInt(shard.getFileName().toString(), 16));
+                if (shardPosition < startPosition) {
+                    continue;
+                }
+                if (budget.isExhausted()) {
+                    return shardPosition;
+                }
+                scanDirectory(shard, false, budget);
+            }
+        }
+        return -1;
+    }
+
+    private List<Path> listShards(Path directory) throws IOException {
+        List<Path> shards = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+                entry -> SHARD_NAME.matcher(entry.getFileName().toString()).matches() && Files.isDirectory(entry))) {
+            entries.forEach(shards::add);
+        }
+        shards.sort(null);
+        return shards;
+    }
+
+    // Директория всегда проверяется целиком: порядок DirectoryStream не позволяет продолжить ее с середины
+    private void scanDirectory(Path directory, boolean legacy, ScanBudget budget) throws IOException {
+        List<Path> batch = new ArrayList<>();
+        // DirectoryStream отдает файлы по мере чтения директории и не собирает весь список в памяти
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                budget.consume();
+                filesScanned.incrementAndGet();
+                if (isOldEnough(file)) {
+                    batch.add(file);
+                }
+                if (batch.size() >= batchSize) {
+                    checkBatch(batch, legacy);
+                    batch.clear();
+                }
+            }
+        }
+        checkBatch(batch, legacy);
+    }
+
+    private void checkBatch(List<Path> batch, boolean legacy) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (legacy) {
+            List<String> filePaths = batch.stream().map(Path::toString).toList();
+            Set<String> referenced = new HashSet<>(avatarRepository.findExistingFilePaths(filePaths));
+            for (Path file : batch) {
+                if (!referenced.contains(file.toString())) {
+                    handleLegacyOrphan(file);
+                }
+            }
+            return;
+        }
+
+        List<String> hashes = new ArrayList<>();
+        for (Path file : batch) {
+            String hash = contentHash(file);
+            if (hash != null) {
+                hashes.add(hash);
+            }
+        }
+        Set<String> referenced = new HashSet<>(avatarRepository.findExistingDigests(hashes));
+        for (Path file : batch) {
+            String hash = contentHash(file);
+            if (hash != null && !referenced.contains(hash)) {
+                handleContentOrphan(file, hash);
+            }
+        }
+    }
+
+    // Пакетная проверка могла устареть: перед действием ссылка и возраст файла проверяются заново
+    private void handleLegacyOrphan(Path file) {
+        if (!isOldEnough(file) || !avatarRepository.findExistingFilePaths(List.of(file.toString())).isEmpty()) {
+            return;
+        }
+        handleOrphan(file);
+    }
+
+    private void handleContentOrphan(Path file, String hash) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Пока строка счетчика заблокирована, загрузка того же содержимого ждет и потом кладет файл заново
+                avatarContentRepository.findForUpdate(hash);
+                if (!isOldEnough(file) || !avatarRepository.findExistingDigests(List.of(hash)).isEmpty()) {
+                    return;
+                }
+                if (file.getFileName().toString().equals(hash)) {
+                    avatarContentRepository.deleteIfOrphaned(hash);
+                }
+                handleOrphan(file);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Не удалось обработать осиротевший файл аватарки {}", file, e);
+        }
+    }
+
+    private void handleOrphan(Path file) {
+        try {
+            long size = Files.size(file);
+            if (action == Action.DELETE) {
+                Files.deleteIfExists(file);
+                bytesReclaimed.addAndGet(size);
+            } else {
+                Path target = rootPath.resolve(QUARANTINE_DIR).resolve(rootPath.relativize(file));
+                Files.createDirectories(target.getParent());
+                Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                bytesQuarantined.addAndGet(size);
+            }
+            orphanFiles.incrementAndGet();
+            logger.info("Осиротевший файл аватарки {} ({} байт): {}", file, size, action);
+        } catch (IOException e) {
+            logger.warn("Не удалось обработать осиротевший файл аватарки {}", file, e);
+        }
+    }
+
+    private void removeStaleTempFiles() {
+        Path tempDir = rootPath.resolve(TEMP_DIR);
+        if (!Files.isDirectory(tempDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tempDir, Files::isRegularFile)) {
+            for (Path file : files) {
+                if (isOldEnough(file)) {
+                    long size = Files.size(file);
+                    Files.deleteIfExists(file);
+                    bytesReclaimed.addAndGet(size);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось очистить временную директорию {}", tempDir, e);
+        }
+    }
+
+    private void removeDanglingRows() {
+        List<Avatar> avatars = avatarRepository.findWithoutStudent(Limit.of(batchSize));
+        for (Avatar avatar : avatars) {
+            transactionTemplate.executeWithoutResult(status -> {
+                avatarRepository.unlinkData(avatar.getId());
+                avatarRepository.deleteById(avatar.getId());
+            });
+            avatarStorage.release(avatar.getContentDigest(), avatar.getFilePath());
+            orphanRows.incrementAndGet();
+            logger.info("Удалена аватарка id={} без студента", avatar.getId());
+        }
+    }
+
+    private boolean isOldEnough(Path file) {
+        // Свежий файл может принадлежать загрузке, строка которой еще не зафиксирована
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(Instant.now().minus(minAge));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String contentHash(Path file) {
+        Matcher matcher = CONTENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private class ScanBudget {
+        private final long startedAt = System.nanoTime();
+        private long scanned;
+
+        boolean isExhausted() {
+            return scanned >= maxFilesPerRun;
+        }
+
+        void consume() {
+            scanned++;
+            if (maxFilesPerSecond <= 0) {
+                return;
+            }
+            long expectedNanos = TimeUnit.SECONDS.toNanos(scanned) / maxFilesPerSecond;
+            long sleepNanos = expectedNanos - (System.nanoTime() - startedAt);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void saveCheckpoint(long value) {
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(CHECKPOINT_NAME)
+                .orElseGet(() -> new JobCheckpoint(CHECKPOINT_NAME, value));
+        checkpoint.setPosition(value);
+        checkpoint.setUpdatedAt(Instant.now());
+        jobCheckpointRepository.save(checkpoint);
+    }
+}
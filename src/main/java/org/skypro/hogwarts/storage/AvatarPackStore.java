@@ -0,0 +1,349 @@
+package org.skypro.hogwarts.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Хранилище аватарок в больших append-only сегментах вместо отдельного файла на каждое изображение.
+ * Запись в сегменте — заголовок (метка, SHA-256, длина) и следом байты изображения. Индекс
+ * «хеш -> сегмент, смещение, длина» живет в памяти и при старте восстанавливается по заголовкам,
+ * а чтение идет через срезы MappedByteBuffer. Записи, на которые больше не ссылается ни одна аватарка,
+ * освобождаются фоновым уплотнением закрытых сегментов. Свежие записи уплотнение не трогает: строка аватарки
+ * фиксируется уже после дозаписи, и до этого запись выглядит неиспользуемой.
+ */
+@Component
+@ConditionalOnProperty(name = "avatars.storage.mode", havingValue = "pack")
+public class AvatarPackStore {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarPackStore.class);
+    private static final int MAGIC = 0x41565031;
+    private static final int HASH_BYTES = 32;
+    private static final int HEADER_BYTES = Integer.BYTES + HASH_BYTES + Integer.BYTES;
+    private static final String PACK_DIR = "packs";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final int REFERENCE_BATCH_SIZE = 1000;
+
+    // appendedAt — время дозаписи в этом процессе; у записей, прочитанных при старте, он равен 0
+    private record Location(int segmentId, long offset, int length, long appendedAt) {
+    }
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarStore avatarStore;
+    private final Path packDir;
+    private final long segmentSize;
+    private final double compactionThreshold;
+    private final long compactionGraceMillis;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object appendLock = new Object();
+    private Segment active;
+
+    public AvatarPackStore(AvatarRepository avatarRepository,
+                           AvatarStore avatarStore,
+                           @Value("${avatars.dir.path}") String avatarsDirPath,
+                           @Value("${avatars.pack.segment-size:256MB}") DataSize segmentSize,
+                           @Value("${avatars.pack.compaction-threshold:0.5}") double compactionThreshold,
+                           @Value("${avatars.pack.compaction-grace:PT10M}") Duration compactionGrace) {
+        this.avatarRepository = avatarRepository;
+        this.avatarStore = avatarStore;
+        this.packDir = Path.of(avatarsDirPath).resolve(PACK_DIR);
+        // Сегмент отображается в память целиком, а MappedByteBuffer ограничен 2 ГБ
+        this.segmentSize = Math.min(segmentSize.toBytes(), Integer.MAX_VALUE);
+        this.compactionThreshold = compactionThreshold;
+        this.compactionGraceMillis = compactionGrace.toMillis();
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(packDir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(packDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Segment segment = new Segment(segmentId(file), file);
+                segments.put(segment.id, segment);
+            }
+        }
+        // Сегменты читаются по возрастанию, поэтому более поздняя копия перекрывает раннюю
+        for (Segment segment : segments.values()) {
+            loadIndex(segment);
+        }
+        synchronized (appendLock) {
+            active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+            segments.headMap(active.id).values().forEach(Segment::seal);
+        }
+        logger.info("Сегментное хранилище аватарок открыто: директория={}, сегментов={}, записей={}",
+                packDir, segments.size(), index.size());
+    }
+
+    public StoredContent append(InputStream content) throws IOException {
+        Path tempFile = avatarStore.createTempFile();
+        try {
+            StoredContent staged = ContentHashing.copy(content, tempFile);
+            if (staged.size() > segmentSize - HEADER_BYTES) {
+                throw new IllegalArgumentException("Аватарка размером " + staged.size()
+                        + " байт не помещается в сегмент " + segmentSize + " байт");
+            }
+            try (FileChannel source = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+                synchronized (appendLock) {
+                    Location existing = index.get(staged.hash());
+                    // Копия в закрытом сегменте может попасть под уплотнение, поэтому дублируем ее в активный
+                    if (existing == null || existing.segmentId() != active.id) {
+                        write(staged.hash(), source, (int) staged.size());
+                    } else {
+                        // Новая ссылка на старую запись: до фиксации строки ее тоже нельзя уплотнять
+                        index.put(staged.hash(), new Location(existing.segmentId(), existing.offset(),
+                                existing.length(), System.currentTimeMillis()));
+                    }
+                    return new StoredContent(staged.hash(), staged.size(), active.path);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public Optional<ByteBuffer> read(String hash) throws IOException {
+        // Уплотнение может перенести запись между чтением индекса и сегмента, тогда берем новое место
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Location location = index.get(hash);
+            if (location == null) {
+                return Optional.empty();
+            }
+            Segment segment = segments.get(location.segmentId());
+            if (segment == null) {
+                continue;
+            }
+            try {
+                return Optional.of(segment.slice(location.offset(), location.length()));
+            } catch (ClosedChannelException e) {
+                logger.debug("Сегмент {} закрыт уплотнением во время чтения {}", segment.id, hash);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Scheduled(initialDelayString = "${avatars.pack.compaction-interval-ms:600000}",
+            fixedDelayString = "${avatars.pack.compaction-interval-ms:600000}")
+    public void compact() {
+        List<Segment> sealed;
+        synchronized (appendLock) {
+            sealed = new ArrayList<>(segments.headMap(active.id).values());
+        }
+        for (Segment segment : sealed) {
+            try {
+                compact(segment);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Не удалось уплотнить сегмент аватарок {}", segment.path, e);
+            }
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        List<String> hashes = index.entrySet().stream()
+                .filter(entry -> entry.getValue().segmentId() == segment.id)
+                .map(Map.Entry::getKey)
+                .toList();
+        Set<String> referenced = findReferenced(hashes);
+        long graceStart = System.currentTimeMillis() - compactionGraceMillis;
+        for (String hash : hashes) {
+            Location location = index.get(hash);
+            if (location != null && location.appendedAt() > graceStart) {
+                referenced.add(hash);
+            }
+        }
+        long liveBytes = referenced.stream()
+                .map(index::get)
+                .filter(location -> location != null && location.segmentId() == segment.id)
+                .mapToLong(location -> HEADER_BYTES + location.length())
+                .sum();
+        long segmentBytes = segment.size();
+        if (segmentBytes > 0 && liveBytes >= segmentBytes * compactionThreshold) {
+            return;
+        }
+
+        for (String hash : referenced) {
+            synchronized (appendLock) {
+                Location location = index.get(hash);
+                if (location != null && location.segmentId() == segment.id) {
+                    segment.channel.position(location.offset());
+                    write(hash, segment.channel, location.length());
+                }
+            }
+        }
+        for (String hash : hashes) {
+            Location location = index.get(hash);
+            if (location != null && location.segmentId() == segment.id && index.remove(hash, location)) {
+                avatarStore.deleteVariants(hash);
+            }
+        }
+
+        segments.remove(segment.id);
+        segment.close();
+        Files.deleteIfExists(segment.path);
+        logger.info("Сегмент {} уплотнен: перенесено {} байт, освобождено {} байт",
+                segment.path, liveBytes, segmentBytes - liveBytes);
+    }
+
+    private Set<String> findReferenced(List<String> hashes) {
+        Set<String> referenced = new HashSet<>();
+        for (int from = 0; from < hashes.size(); from += REFERENCE_BATCH_SIZE) {
+            List<String> batch = hashes.subList(from, Math.min(from + REFERENCE_BATCH_SIZE, hashes.size()));
+            referenced.addAll(avatarRepository.findExistingDigests(batch));
+        }
+        return referenced;
+    }
+
+    // Вызывается под appendLock
+    private void write(String hash, FileChannel source, int length) throws IOException {
+        if (active.size() > 0 && active.size() + HEADER_BYTES + length > segmentSize) {
+            active.seal();
+            active = createSegment(active.id + 1);
+        }
+        long position = active.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .put(HexFormat.of().parseHex(hash))
+                .putInt(length)
+                .flip();
+        while (header.hasRemaining()) {
+            active.channel.write(header, position + header.position());
+        }
+        long transferred = 0;
+        while (transferred < length) {
+            long written = active.channel.transferFrom(source, position + HEADER_BYTES + transferred,
+                    length - transferred);
+            if (written <= 0) {
+                throw new IOException("Источник записи " + hash + " оказался короче " + length + " байт");
+            }
+            transferred += written;
+        }
+        // Строка в БД фиксируется после записи, поэтому данные должны пережить сбой раньше нее
+        active.channel.force(false);
+        index.put(hash, new Location(active.id, position + HEADER_BYTES, length, System.currentTimeMillis()));
+    }
+
+    private void loadIndex(Segment segment) throws IOException {
+        long size = segment.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        byte[] hash = new byte[HASH_BYTES];
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            if (segment.channel.read(header, position) < HEADER_BYTES) {
+                break;
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                break;
+            }
+            header.get(hash);
+            int length = header.getInt();
+            if (length < 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            index.put(HexFormat.of().formatHex(hash), new Location(segment.id, position + HEADER_BYTES, length, 0));
+            position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+            // Хвост от прерванной записи: строка в БД для него не могла зафиксироваться
+            logger.warn("Сегмент {} обрезан с {} до {} байт после незавершенной записи", segment.path, size, position);
+            segment.channel.truncate(position);
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = new Segment(id, packDir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)));
+        segments.put(id, segment);
+        logger.info("Создан новый сегмент аватарок: {}", segment.path);
+        return segment;
+    }
+
+    private static int segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private volatile boolean sealed;
+        private volatile MappedByteBuffer mapped;
+
+        Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+
+        long size() throws IOException {
+            return channel.size();
+        }
+
+        void seal() {
+            sealed = true;
+        }
+
+        ByteBuffer slice(long offset, int length) throws IOException {
+            if (!sealed) {
+                // Активный сегмент растет, поэтому отображается только запрошенная запись
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            }
+            MappedByteBuffer buffer = mapped;
+            if (buffer == null) {
+                synchronized (this) {
+                    buffer = mapped;
+                    if (buffer == null) {
+                        // Закрытый сегмент больше не меняется и отображается целиком один раз
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                        mapped = buffer;
+                    }
+                }
+            }
+            return buffer.slice((int) offset, length);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Не удалось закрыть сегмент {}", path, e);
+            }
+        }
+    }
+}
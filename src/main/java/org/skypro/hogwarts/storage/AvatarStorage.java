@@ -0,0 +1,23 @@
+package org.skypro.hogwarts.storage;
+
+import org.skypro.hogwarts.model.Avatar;
+import org.springframework.core.io.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+public interface AvatarStorage {
+
+    Avatar save(Avatar avatar, InputStream content) throws IOException;
+
+    // Записывает содержимое и заполняет поля аватарки, не сохраняя строку: пакетный импорт вставляет строки сам.
+    // Хранилища с LOB кладут в data Blob над подготовленной копией, его освобождают через free() после вставки
+    Avatar prepare(Avatar avatar, InputStream content) throws IOException;
+
+    Optional<Resource> readFromFile(Avatar avatar);
+
+    // Сам LOB читается при открытии потока ресурса в отдельной транзакции только для чтения
+    Optional<Resource> readFromDatabase(Avatar avatar);
+
+    void release(String contentDigest, String filePath);
+}
@@ -0,0 +1,33 @@
+package org.skypro.hogwarts.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+public class AvatarStorageConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarStorageConfiguration.class);
+
+    @Bean
+    public AvatarStorage avatarStorage(@Value("${avatars.storage.mode:dual}") AvatarStorageMode mode,
+                                       AvatarStore avatarStore,
+                                       AvatarRepository avatarRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       ObjectProvider<AvatarPackStore> avatarPackStore) {
+        logger.info("Режим хранения аватарок: {}", mode);
+
+        FileSystemAvatarStorage fileSystemStorage = new FileSystemAvatarStorage(avatarStore, avatarRepository);
+        DatabaseAvatarStorage databaseStorage = new DatabaseAvatarStorage(avatarRepository, transactionManager);
+        return switch (mode) {
+            case FILESYSTEM -> fileSystemStorage;
+            case DATABASE -> databaseStorage;
+            case DUAL -> new DualAvatarStorage(avatarStore, fileSystemStorage, databaseStorage);
+            case PACK -> new PackAvatarStorage(avatarPackStore.getObject(), fileSystemStorage, avatarRepository);
+        };
+    }
+}
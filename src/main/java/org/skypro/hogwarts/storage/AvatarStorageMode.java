@@ -0,0 +1,8 @@
+package org.skypro.hogwarts.storage;
+
+public enum AvatarStorageMode {
+    FILESYSTEM,
+    DATABASE,
+    DUAL,
+    PACK
+}
@@ -0,0 +1,137 @@
+package org.skypro.hogwarts.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+/**
+ * Контентно-адресуемое хранилище аватарок: файл лежит по пути {@code ab/cd/<sha-256>},
+ * одинаковые изображения хранятся один раз, а число ссылок на них ведется в таблице avatar_contents.
+ */
+@Component
+public class AvatarStore {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarStore.class);
+    private static final String TEMP_DIR = "tmp";
+
+    private final AvatarContentRepository avatarContentRepository;
+    private final Path rootPath;
+
+    public AvatarStore(AvatarContentRepository avatarContentRepository,
+                       @Value("${avatars.dir.path}") String avatarsDirPath) {
+        this.avatarContentRepository = avatarContentRepository;
+        this.rootPath = Path.of(avatarsDirPath);
+        logger.info("Хранилище аватарок инициализировано с директорией: {}", rootPath);
+    }
+
+    @Transactional
+    public StoredContent store(InputStream content) throws IOException {
+        Path tempFile = createTempFile();
+        try {
+            StoredContent staged = ContentHashing.copy(content, tempFile);
+            String hash = staged.hash();
+            long size = staged.size();
+            Path target = resolve(hash);
+
+            avatarContentRepository.acquire(hash, size);
+            if (Files.exists(target)) {
+                // Обновленное время изменения не дает поиску осиротевших файлов удалить их до сохранения строки
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                logger.debug("Содержимое {} уже есть в хранилище, повторно не сохраняем", hash);
+            } else {
+                Files.createDirectories(target.getParent());
+                moveIntoPlace(tempFile, target);
+                logger.debug("Содержимое {} сохранено в файл: {}", hash, target);
+            }
+            return new StoredContent(hash, size, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Transactional
+    public void release(String hash) {
+        avatarContentRepository.decrementRefCount(hash);
+        if (avatarContentRepository.deleteIfUnreferenced(hash) > 0) {
+            try {
+                Files.deleteIfExists(resolve(hash));
+                deleteVariants(hash);
+                logger.debug("Содержимое {} больше не используется и удалено", hash);
+            } catch (IOException e) {
+                logger.warn("Не удалось удалить файл содержимого {}", hash, e);
+            }
+        }
+    }
+
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(resolve(hash));
+    }
+
+    public Path resolve(String hash) {
+        return rootPath.resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(hash);
+    }
+
+    public Path resolveVariant(String hash, int size) {
+        return resolve(hash).resolveSibling(hash + "-" + size + ".jpg");
+    }
+
+    // Пустая метка: копии этого размера не будет (оригинал меньше или не декодируется), отдается оригинал
+    public Path resolveVariantMarker(String hash, int size) {
+        return resolve(hash).resolveSibling(hash + "-" + size + ".original");
+    }
+
+    public void markVariantSkipped(String hash, int size) throws IOException {
+        Path marker = resolveVariantMarker(hash, size);
+        Files.createDirectories(marker.getParent());
+        try {
+            Files.createFile(marker);
+        } catch (FileAlreadyExistsException e) {
+            logger.debug("Метка {} уже создана", marker);
+        }
+    }
+
+    public Path createTempFile() throws IOException {
+        Path tempDir = Files.createDirectories(rootPath.resolve(TEMP_DIR));
+        return Files.createTempFile(tempDir, "upload-", ".part");
+    }
+
+    public void storeVariant(String hash, int size, Path source) throws IOException {
+        Path target = resolveVariant(hash, size);
+        Files.createDirectories(target.getParent());
+        moveIntoPlace(source, target);
+    }
+
+    public void deleteVariants(String hash) throws IOException {
+        Path directory = resolve(hash).getParent();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(directory, hash + "-*")) {
+            for (Path variant : variants) {
+                Files.deleteIfExists(variant);
+            }
+        }
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Параллельная загрузка того же изображения успела положить файл раньше
+            logger.debug("Файл {} уже создан параллельной загрузкой", target);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.skypro.hogwarts.storage;
+
+import org.springframework.core.io.AbstractResource;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Ресурс поверх уже загруженных или отображенных в память байтов, каждый поток читает свою копию позиции.
+ */
+public class ByteBufferResource extends AbstractResource {
+    private final ByteBuffer content;
+    private final String description;
+
+    public ByteBufferResource(ByteBuffer content, String description) {
+        this.content = content;
+        this.description = description;
+    }
+
+    @Override
+    public String getDescription() {
+        return description + " [" + content.remaining() + " bytes]";
+    }
+
+    @Override
+    public long contentLength() {
+        return content.remaining();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        ByteBuffer view = content.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, view.remaining());
+                view.get(bytes, offset, count);
+                return count;
+            }
+
+            @Override
+            public long skip(long n) {
+                int count = (int) Math.max(0, Math.min(n, view.remaining()));
+                view.position(view.position() + count);
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package org.skypro.hogwarts.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+final class ContentHashing {
+
+    private ContentHashing() {
+    }
+
+    static StoredContent copy(InputStream content, Path target) throws IOException {
+        MessageDigest digest = newContentDigest();
+        long size;
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            size = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new StoredContent(HexFormat.of().formatHex(digest.digest()), size, target);
+    }
+
+    static String hash(InputStream content) throws IOException {
+        MessageDigest digest = newContentDigest();
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм SHA-256 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.skypro.hogwarts.storage;
+
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.Optional;
+
+public class DatabaseAvatarStorage implements AvatarStorage {
+    private final AvatarRepository avatarRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final DefaultTransactionDefinition readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    public DatabaseAvatarStorage(AvatarRepository avatarRepository, PlatformTransactionManager transactionManager) {
+        this.avatarRepository = avatarRepository;
+        this.transactionManager = transactionManager;
+        this.readOnlyTransaction = new DefaultTransactionDefinition();
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Avatar save(Avatar avatar, InputStream content) throws IOException {
+        // Размер и хеш нужны до вставки, поэтому поток сначала проходит через временный файл
+        Path tempFile = Files.createTempFile("avatar-", ".part");
+        try {
+            StoredContent staged = ContentHashing.copy(content, tempFile);
+            avatar.setFilePath(null);
+            return saveWithData(avatar, staged);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public Avatar prepare(Avatar avatar, InputStream content) throws IOException {
+        Path tempFile = Files.createTempFile("avatar-", ".part");
+        try {
+            StoredContent staged = ContentHashing.copy(content, tempFile);
+            avatar.setFilePath(null);
+            avatar.setFileSize(staged.size());
+            avatar.setContentDigest(staged.hash());
+            // Временный файл живет, пока пакетная вставка не освободит LOB через free()
+            avatar.setData(BlobProxy.generateProxy(new StagedContentInputStream(tempFile), staged.size()));
+            return avatar;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    Avatar saveWithData(Avatar avatar, StoredContent content) throws IOException {
+        avatar.setFileSize(content.size());
+        avatar.setContentDigest(content.hash());
+        try (InputStream data = Files.newInputStream(content.path())) {
+            Blob blob = BlobProxy.generateProxy(data, content.size());
+            return writeTransaction.execute(status -> {
+                // Новое содержимое получает новый oid, а прежний LOB сам из pg_largeobject не удалится
+                if (avatar.getId() != null) {
+                    avatarRepository.unlinkData(avatar.getId());
+                }
+                avatar.setData(blob);
+                return avatarRepository.save(avatar);
+            });
+        }
+    }
+
+    @Override
+    public Optional<Resource> readFromFile(Avatar avatar) {
+        return readFromDatabase(avatar);
+    }
+
+    @Override
+    public Optional<Resource> readFromDatabase(Avatar avatar) {
+        if (avatar.getData() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new DatabaseResource(avatar.getId(), avatar.getFileSize()));
+    }
+
+    @Override
+    public void release(String contentDigest, String filePath) {
+    }
+
+    private InputStream openData(Long avatarId, String description) throws IOException {
+        // Поток LOB действителен только внутри транзакции, поэтому она живет ровно столько, сколько поток
+        TransactionStatus transaction = transactionManager.getTransaction(readOnlyTransaction);
+        try {
+            Blob data = avatarRepository.findById(avatarId)
+                    .map(Avatar::getData)
+                    .orElse(null);
+            if (data == null) {
+                throw new FileNotFoundException(description + " больше не существует");
+            }
+            return new TransactionBoundInputStream(data.getBinaryStream(), transaction);
+        } catch (SQLException e) {
+            transactionManager.rollback(transaction);
+            throw new IOException("Не удалось открыть поток данных аватарки id=" + avatarId, e);
+        } catch (IOException | RuntimeException e) {
+            transactionManager.rollback(transaction);
+            throw e;
+        }
+    }
+
+    // LOB читается только при открытии потока, поэтому ответ 304 обходится без обращения к данным
+    private class DatabaseResource extends AbstractResource {
+        private final Long avatarId;
+        private final long length;
+
+        DatabaseResource(Long avatarId, long length) {
+            this.avatarId = avatarId;
+            this.length = length;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Avatar LOB [id=" + avatarId + "]";
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return openData(avatarId, getDescription());
+        }
+    }
+
+    private static class StagedContentInputStream extends FilterInputStream {
+        private final Path file;
+
+        StagedContentInputStream(Path file) throws IOException {
+            super(Files.newInputStream(file));
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Читать и закрывать поток нужно в том же потоке выполнения, к которому привязана транзакция
+    private class TransactionBoundInputStream extends FilterInputStream {
+        private final TransactionStatus transaction;
+        private boolean closed;
+
+        TransactionBoundInputStream(InputStream in, TransactionStatus transaction) {
+            super(in);
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                transactionManager.commit(transaction);
+            }
+        }
+    }
+}
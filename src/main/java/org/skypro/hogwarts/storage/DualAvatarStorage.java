@@ -0,0 +1,69 @@
+package org.skypro.hogwarts.storage;
+
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.skypro.hogwarts.model.Avatar;
+import org.springframework.core.io.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Optional;
+
+public class DualAvatarStorage implements AvatarStorage {
+    private final AvatarStore avatarStore;
+    private final FileSystemAvatarStorage fileSystemStorage;
+    private final DatabaseAvatarStorage databaseStorage;
+
+    public DualAvatarStorage(AvatarStore avatarStore,
+                             FileSystemAvatarStorage fileSystemStorage,
+                             DatabaseAvatarStorage databaseStorage) {
+        this.avatarStore = avatarStore;
+        this.fileSystemStorage = fileSystemStorage;
+        this.databaseStorage = databaseStorage;
+    }
+
+    @Override
+    public Avatar save(Avatar avatar, InputStream content) throws IOException {
+        // Копия в БД читается потоком из уже записанного файла, без промежуточного byte[]
+        StoredContent stored = avatarStore.store(content);
+        avatar.setFilePath(stored.path().toString());
+        try {
+            return databaseStorage.saveWithData(avatar, stored);
+        } catch (RuntimeException | IOException e) {
+            avatarStore.release(stored.hash());
+            throw e;
+        }
+    }
+
+    @Override
+    public Avatar prepare(Avatar avatar, InputStream content) throws IOException {
+        StoredContent stored = avatarStore.store(content);
+        avatar.setFilePath(stored.path().toString());
+        avatar.setFileSize(stored.size());
+        avatar.setContentDigest(stored.hash());
+        try {
+            // Копия в БД запишется пакетной вставкой из уже сохраненного файла
+            avatar.setData(BlobProxy.generateProxy(Files.newInputStream(stored.path()), stored.size()));
+        } catch (IOException e) {
+            avatarStore.release(stored.hash());
+            throw e;
+        }
+        return avatar;
+    }
+
+    @Override
+    public Optional<Resource> readFromFile(Avatar avatar) {
+        return fileSystemStorage.readFromFile(avatar)
+                .or(() -> databaseStorage.readFromDatabase(avatar));
+    }
+
+    @Override
+    public Optional<Resource> readFromDatabase(Avatar avatar) {
+        return databaseStorage.readFromDatabase(avatar)
+                .or(() -> fileSystemStorage.readFromFile(avatar));
+    }
+
+    @Override
+    public void release(String contentDigest, String filePath) {
+        fileSystemStorage.release(contentDigest, filePath);
+    }
+}
@@ -0,0 +1,68 @@
+package org.skypro.hogwarts.storage;
+
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class FileSystemAvatarStorage implements AvatarStorage {
+    private final AvatarStore avatarStore;
+    private final AvatarRepository avatarRepository;
+
+    public FileSystemAvatarStorage(AvatarStore avatarStore, AvatarRepository avatarRepository) {
+        this.avatarStore = avatarStore;
+        this.avatarRepository = avatarRepository;
+    }
+
+    @Override
+    public Avatar save(Avatar avatar, InputStream content) throws IOException {
+        prepare(avatar, content);
+        try {
+            return avatarRepository.save(avatar);
+        } catch (RuntimeException e) {
+            avatarStore.release(avatar.getContentDigest());
+            throw e;
+        }
+    }
+
+    @Override
+    public Avatar prepare(Avatar avatar, InputStream content) throws IOException {
+        StoredContent stored = avatarStore.store(content);
+        avatar.setFilePath(stored.path().toString());
+        avatar.setFileSize(stored.size());
+        avatar.setContentDigest(stored.hash());
+        avatar.setData(null);
+        return avatar;
+    }
+
+    @Override
+    public Optional<Resource> readFromFile(Avatar avatar) {
+        if (avatar.getFilePath() == null) {
+            return Optional.empty();
+        }
+        Path filePath = Path.of(avatar.getFilePath());
+        if (!Files.exists(filePath)) {
+            return Optional.empty();
+        }
+        return Optional.of(new FileSystemResource(filePath));
+    }
+
+    @Override
+    public Optional<Resource> readFromDatabase(Avatar avatar) {
+        return readFromFile(avatar);
+    }
+
+    @Override
+    public void release(String contentDigest, String filePath) {
+        // Старые аватарки лежат в плоской директории и в подсчете ссылок не участвуют
+        if (contentDigest != null && filePath != null
+                && avatarStore.resolve(contentDigest).equals(Path.of(filePath))) {
+            avatarStore.release(contentDigest);
+        }
+    }
+}
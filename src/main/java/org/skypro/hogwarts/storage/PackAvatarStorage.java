@@ -0,0 +1,67 @@
+package org.skypro.hogwarts.storage;
+
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.springframework.core.io.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+public class PackAvatarStorage implements AvatarStorage {
+    private final AvatarPackStore avatarPackStore;
+    private final FileSystemAvatarStorage fileSystemStorage;
+    private final AvatarRepository avatarRepository;
+
+    public PackAvatarStorage(AvatarPackStore avatarPackStore,
+                             FileSystemAvatarStorage fileSystemStorage,
+                             AvatarRepository avatarRepository) {
+        this.avatarPackStore = avatarPackStore;
+        this.fileSystemStorage = fileSystemStorage;
+        this.avatarRepository = avatarRepository;
+    }
+
+    @Override
+    public Avatar save(Avatar avatar, InputStream content) throws IOException {
+        return avatarRepository.save(prepare(avatar, content));
+    }
+
+    @Override
+    public Avatar prepare(Avatar avatar, InputStream content) throws IOException {
+        // Место записи меняется при уплотнении, поэтому аватарка ссылается на содержимое только по хешу
+        StoredContent stored = avatarPackStore.append(content);
+        avatar.setFilePath(null);
+        avatar.setFileSize(stored.size());
+        avatar.setContentDigest(stored.hash());
+        avatar.setData(null);
+        return avatar;
+    }
+
+    @Override
+    public Optional<Resource> readFromFile(Avatar avatar) {
+        if (avatar.getContentDigest() != null) {
+            try {
+                Optional<Resource> packed = avatarPackStore.read(avatar.getContentDigest())
+                        .map(buffer -> new ByteBufferResource(buffer, "Packed avatar " + avatar.getContentDigest()));
+                if (packed.isPresent()) {
+                    return packed;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        // Аватарки, загруженные до включения сегментов, по-прежнему лежат отдельными файлами
+        return fileSystemStorage.readFromFile(avatar);
+    }
+
+    @Override
+    public Optional<Resource> readFromDatabase(Avatar avatar) {
+        return readFromFile(avatar);
+    }
+
+    @Override
+    public void release(String contentDigest, String filePath) {
+        // Записи в сегментах освобождает уплотнение, здесь остаются только отдельные файлы
+        fileSystemStorage.release(contentDigest, filePath);
+    }
+}
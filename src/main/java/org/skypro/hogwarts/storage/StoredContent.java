@@ -0,0 +1,6 @@
+package org.skypro.hogwarts.storage;
+
+import java.nio.file.Path;
+
+public record StoredContent(String hash, long size, Path path) {
+}
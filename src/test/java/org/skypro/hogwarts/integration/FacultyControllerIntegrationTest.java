@@ -3,10 +3,12 @@ package org.skypro.hogwarts.integration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.skypro.hogwarts.model.Faculty;
+import org.skypro.hogwarts.model.Student;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
 import java.util.List;
+import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 
 class FacultyControllerIntegrationTest extends AbstractIntegrationTest {
@@ -144,4 +146,92 @@ class FacultyControllerIntegrationTest extends AbstractIntegrationTest {
         assertNotNull(response.getBody());
         assertFalse(response.getBody().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFacultyStudents_ShouldRunConstantNumberOfStatements() {
+
+        Faculty faculty = restTemplate.postForObject("/faculty", testFaculty, Faculty.class);
+        Student student = new Student("Гарри Поттер", 17);
+        student.setFaculty(faculty);
+        restTemplate.postForObject("/student", student, Student.class);
+        String url = "/faculty/" + faculty.getId() + "/students";
+
+
+        long statementsForOne = countStatements(() -> restTemplate.getForEntity(url, List.class));
+        for (int i = 0; i < 5; i++) {
+            Student another = new Student("Студент " + i, 16);
+            another.setFaculty(faculty);
+            restTemplate.postForObject("/student", another, Student.class);
+        }
+        long statementsForMany = countStatements(() -> restTemplate.getForEntity(url, List.class));
+
+
+        assertEquals(statementsForOne, statementsForMany);
+    }
+
+    @Test
+    void getFaculty_ShouldBeServedFromSecondLevelCache() {
+
+        Faculty createdFaculty = restTemplate.postForObject("/faculty", testFaculty, Faculty.class);
+        String url = "/faculty/" + createdFaculty.getId();
+        restTemplate.getForEntity(url, Faculty.class);
+
+
+        long statements = countStatements(() -> restTemplate.getForEntity(url, Faculty.class));
+
+
+        assertEquals(0, statements);
+        assertTrue(hibernateStatistics().getDomainDataRegionStatistics("faculties").getHitCount() > 0);
+    }
+
+    @Test
+    void getFacultyStudents_ShouldPageByNameAndCount() {
+
+        Faculty faculty = restTemplate.postForObject("/faculty", testFaculty, Faculty.class);
+        for (String name : List.of("Рон Уизли", "Гарри Поттер", "Гермиона Грейнджер")) {
+            Student student = new Student(name, 17);
+            student.setFaculty(faculty);
+            restTemplate.postForObject("/student", student, Student.class);
+        }
+        String url = "/faculty/" + faculty.getId() + "/students?sort=name&limit=2";
+
+
+        ResponseEntity<List> firstPage = restTemplate.getForEntity(url, List.class);
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List> secondPage = restTemplate.getForEntity(url + "&after=" + cursor, List.class);
+        Long count = restTemplate.getForObject("/faculty/" + faculty.getId() + "/students/count", Long.class);
+
+
+        assertEquals(2, firstPage.getBody().size());
+        assertEquals("Гарри Поттер", ((Map<?, ?>) firstPage.getBody().get(0)).get("name"));
+        assertEquals("Гермиона Грейнджер", ((Map<?, ?>) firstPage.getBody().get(1)).get("name"));
+        assertNotNull(cursor);
+        assertEquals(1, secondPage.getBody().size());
+        assertEquals("Рон Уизли", ((Map<?, ?>) secondPage.getBody().get(0)).get("name"));
+        assertNull(secondPage.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(3L, count);
+    }
+
+    @Test
+    void getFacultyStudents_WhenCursorStudentIsDeleted_ShouldContinueFromItsName() {
+
+        Faculty faculty = restTemplate.postForObject("/faculty", testFaculty, Faculty.class);
+        for (String name : List.of("Рон Уизли", "Гарри Поттер", "Гермиона Грейнджер")) {
+            Student student = new Student(name, 17);
+            student.setFaculty(faculty);
+            restTemplate.postForObject("/student", student, Student.class);
+        }
+        String url = "/faculty/" + faculty.getId() + "/students?sort=name&limit=2";
+        ResponseEntity<List> firstPage = restTemplate.getForEntity(url, List.class);
+        Object lastId = ((Map<?, ?>) firstPage.getBody().get(1)).get("id");
+        restTemplate.exchange("/student/" + lastId, HttpMethod.DELETE, null, Void.class);
+
+
+        ResponseEntity<List> secondPage = restTemplate.getForEntity(
+                url + "&after=" + firstPage.getHeaders().getFirst("X-Next-Cursor"), List.class);
+
+
+        assertEquals(1, secondPage.getBody().size());
+        assertEquals("Рон Уизли", ((Map<?, ?>) secondPage.getBody().get(0)).get("name"));
+    }
+}
@@ -2,6 +2,7 @@ package org.skypro.hogwarts.integration;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.model.Faculty;
 import org.skypro.hogwarts.model.Student;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.client.TestRestTemplate;
@@ -129,4 +130,40 @@ class StudentControllerIntegrationTest extends AbstractIntegrationTest {
         assertNotNull(response.getBody());
         assertFalse(response.getBody().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllStudents_ShouldRunConstantNumberOfStatements() {
+
+        Faculty faculty = restTemplate.postForObject("/faculty", new Faculty("Гриффиндор", "красный"), Faculty.class);
+        testStudent.setFaculty(faculty);
+        restTemplate.postForObject("/student", testStudent, Student.class);
+
+
+        long statementsForFew = countStatements(() -> restTemplate.getForEntity("/student?limit=100", List.class));
+        for (int i = 0; i < 5; i++) {
+            restTemplate.postForObject("/student", new Student("Студент " + i, 16), Student.class);
+        }
+        long statementsForMany = countStatements(() -> restTemplate.getForEntity("/student?limit=100", List.class));
+
+
+        assertEquals(statementsForFew, statementsForMany);
+        assertTrue(statementsForMany <= 2, "Запросов на страницу студентов: " + statementsForMany);
+    }
+
+    @Test
+    void getStudent_ShouldNotSerializeAvatarOrFacultyStudents() {
+
+        Faculty faculty = restTemplate.postForObject("/faculty", new Faculty("Пуффендуй", "желтый"), Faculty.class);
+        testStudent.setFaculty(faculty);
+        Student createdStudent = restTemplate.postForObject("/student", testStudent, Student.class);
+
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/student/" + createdStudent.getId(), String.class);
+
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"facultyId\":" + faculty.getId()));
+        assertFalse(response.getBody().contains("avatar"));
+        assertFalse(response.getBody().contains("students"));
+    }
+}
@@ -0,0 +1,254 @@
+package org.skypro.hogwarts.mvc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.controller.AvatarController;
+import org.skypro.hogwarts.dto.AvatarImportReport;
+import org.skypro.hogwarts.dto.AvatarImportResult;
+import org.skypro.hogwarts.dto.AvatarInfo;
+import org.skypro.hogwarts.dto.AvatarUploadStatus;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.AvatarData;
+import org.skypro.hogwarts.service.AvatarBulkImportService;
+import org.skypro.hogwarts.service.AvatarService;
+import org.skypro.hogwarts.service.AvatarUploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AvatarController.class)
+class AvatarControllerMvcTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AvatarService avatarService;
+
+    @MockBean
+    private AvatarUploadService avatarUploadService;
+
+    @MockBean
+    private AvatarBulkImportService avatarBulkImportService;
+
+    private final Path filePath = Path.of("avatars", "avatar_1.jpg");
+
+    private final Resource resource = new ByteArrayResource(new byte[100]);
+
+    private final Instant updatedAt = Instant.parse("2024-01-15T10:00:00Z");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Avatar avatar = new Avatar();
+        avatar.setId(1L);
+        avatar.setFilePath(filePath.toString());
+        avatar.setFileSize(100);
+        avatar.setMediaType("image/jpeg");
+        avatar.setContentDigest("abc123");
+        avatar.setUpdatedAt(updatedAt);
+
+        when(avatarService.getAvatarFromFile(1L, null)).thenReturn(Optional.of(new AvatarData(avatar, resource)));
+    }
+
+    @Test
+    void getAvatarFromFile_WithoutRange_ShouldReturnWholeFile() throws Exception {
+
+        MvcResult result = mockMvc.perform(get("/avatar/1/from-file"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, updatedAt.toEpochMilli()))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100));
+        verify(avatarService).transferAvatar(eq(resource), eq(0L), eq(100L), any());
+    }
+
+    @Test
+    void getAvatarFromFile_WithMatchingIfNoneMatch_ShouldReturnNotModified() throws Exception {
+
+        mockMvc.perform(get("/avatar/1/from-file")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\", \"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(content().bytes(new byte[0]));
+        verify(avatarService, never()).transferAvatar(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getAvatarFromFile_WithIfModifiedSince_ShouldReturnNotModified() throws Exception {
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfModifiedSince(updatedAt);
+
+
+        mockMvc.perform(get("/avatar/1/from-file").headers(requestHeaders))
+                .andExpect(status().isNotModified());
+        verify(avatarService, never()).transferAvatar(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getAvatarFromFile_WithChangedEtag_ShouldIgnoreIfModifiedSince() throws Exception {
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch("\"outdated\"");
+        requestHeaders.setIfModifiedSince(updatedAt);
+
+
+        mockMvc.perform(get("/avatar/1/from-file").headers(requestHeaders))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void getAvatarFromFile_WithRange_ShouldReturnPartialContent() throws Exception {
+
+        MvcResult result = mockMvc.perform(get("/avatar/1/from-file")
+                        .header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/100"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10));
+        verify(avatarService).transferAvatar(eq(resource), eq(10L), eq(10L), any());
+    }
+
+    @Test
+    void getAvatarFromFile_WithStaleIfRange_ShouldReturnWholeFile() throws Exception {
+
+        MvcResult result = mockMvc.perform(get("/avatar/1/from-file")
+                        .header(HttpHeaders.RANGE, "bytes=10-19")
+                        .header(HttpHeaders.IF_RANGE, "\"outdated\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100));
+    }
+
+    @Test
+    void getAvatarFromFile_WithUnsatisfiableRange_ShouldReturnRangeNotSatisfiable() throws Exception {
+
+        mockMvc.perform(get("/avatar/1/from-file")
+                        .header(HttpHeaders.RANGE, "bytes=200-300"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */100"));
+    }
+
+    @Test
+    void getAvatarFromDb_WithSize_ShouldReturnVariant() throws Exception {
+
+        Avatar avatar = new Avatar();
+        avatar.setId(1L);
+        avatar.setMediaType("image/png");
+        avatar.setContentDigest("abc123");
+        AvatarData variant = new AvatarData(avatar, new ByteArrayResource(new byte[10]), "image/jpeg", "abc123-64");
+        when(avatarService.getAvatarFromDb(1L, 64)).thenReturn(Optional.of(variant));
+
+
+        MvcResult result = mockMvc.perform(get("/avatar/1/from-db")
+                        .param("size", "64"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123-64\""))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10));
+    }
+
+    @Test
+    void getAvatarFromFile_WhenAvatarNotExists_ShouldReturnNotFound() throws Exception {
+
+        when(avatarService.getAvatarFromFile(999L, null)).thenReturn(Optional.empty());
+
+
+        mockMvc.perform(get("/avatar/999/from-file"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getAvatarInfo_ShouldReturnMetadataWithDataLink() throws Exception {
+
+        AvatarInfo info = new AvatarInfo(1L, filePath.toString(), 100, "image/jpeg", 1L);
+        when(avatarService.getAvatarInfoByStudentId(1L)).thenReturn(Optional.of(info));
+
+
+        mockMvc.perform(get("/avatar/student/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$.studentId").value(1L))
+                .andExpect(jsonPath("$.dataUrl").value("/avatar/1/from-db"))
+                .andExpect(jsonPath("$.data").doesNotExist());
+    }
+
+    @Test
+    void uploadChunk_ShouldWriteBodyAtOffsetAndReturnProgress() throws Exception {
+
+        when(avatarUploadService.writeChunk(eq("upload-1"), eq(1024L), any()))
+                .thenReturn(new AvatarUploadStatus("upload-1", 1L, 4096, 2048));
+
+
+        mockMvc.perform(put("/avatar/uploads/upload-1")
+                        .param("offset", "1024")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[1024]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploadId").value("upload-1"))
+                .andExpect(jsonPath("$.offset").value(2048));
+    }
+
+    @Test
+    void getUploadStatus_WhenUploadNotExists_ShouldReturnNotFound() throws Exception {
+
+        when(avatarUploadService.getStatus("missing")).thenReturn(Optional.empty());
+
+
+        mockMvc.perform(get("/avatar/uploads/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void importArchive_ShouldReturnPerItemReport() throws Exception {
+
+        AvatarImportReport report = new AvatarImportReport(List.of(
+                AvatarImportResult.imported("1.jpg", 1L, 10L),
+                AvatarImportResult.failed("999.jpg", 999L, "Студент не найден с id: 999")));
+        when(avatarBulkImportService.importArchive(any())).thenReturn(report);
+
+
+        mockMvc.perform(post("/avatar/bulk")
+                        .contentType("application/zip")
+                        .content(new byte[]{0x50, 0x4B, 0x05, 0x06}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[1].studentId").value(999L));
+    }
+}
@@ -3,7 +3,9 @@ package org.skypro.hogwarts.mvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.skypro.hogwarts.controller.FacultyController;
+import org.skypro.hogwarts.dto.KeysetPage;
 import org.skypro.hogwarts.model.Faculty;
+import org.skypro.hogwarts.model.Student;
 import org.skypro.hogwarts.service.FacultyService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -13,6 +15,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.List;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -101,7 +104,8 @@ class FacultyControllerMvcTest {
     @Test
     void getFacultiesByColor_ShouldReturnFacultiesList() throws Exception {
 
-        when(facultyService.getFacultiesByColor("красный")).thenReturn(List.of(testFaculty));
+        when(facultyService.getFacultiesByColor("красный", null, 100))
+                .thenReturn(new KeysetPage<>(List.of(testFaculty), null));
 
 
         mockMvc.perform(get("/faculty/by-color")
@@ -114,7 +118,8 @@ class FacultyControllerMvcTest {
     @Test
     void searchFaculties_ShouldReturnMatchingFaculties() throws Exception {
 
-        when(facultyService.findFacultiesByNameOrColor("Гриффиндор")).thenReturn(List.of(testFaculty));
+        when(facultyService.findFacultiesByNameOrColor("Гриффиндор", null, 100))
+                .thenReturn(new KeysetPage<>(List.of(testFaculty), null));
 
 
         mockMvc.perform(get("/faculty/search")
@@ -127,7 +132,7 @@ class FacultyControllerMvcTest {
     @Test
     void getAllFaculties_ShouldReturnAllFaculties() throws Exception {
 
-        when(facultyService.getAllFaculties()).thenReturn(List.of(testFaculty));
+        when(facultyService.getAllFaculties(null, 100)).thenReturn(new KeysetPage<>(List.of(testFaculty), null));
 
 
         mockMvc.perform(get("/faculty"))
@@ -135,4 +140,59 @@ class FacultyControllerMvcTest {
                 .andExpect(jsonPath("$[0].name").value("Гриффиндор"))
                 .andExpect(jsonPath("$[0].color").value("красный"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllFaculties_FullPage_ShouldReturnNextCursor() throws Exception {
+        testFaculty.setId(7L);
+        when(facultyService.getAllFaculties(3L, 1)).thenReturn(new KeysetPage<>(List.of(testFaculty), "7"));
+
+        mockMvc.perform(get("/faculty")
+                        .param("after", "3")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetPage.NEXT_CURSOR_HEADER, "7"))
+                .andExpect(jsonPath("$[0].id").value(7L));
+    }
+
+    @Test
+    void getFacultyStudents_ShouldReturnPageInRequestedOrder() throws Exception {
+
+        testFaculty.setId(1L);
+        Student student = new Student("Гарри Поттер", 17);
+        student.setId(5L);
+        student.setFaculty(testFaculty);
+        when(facultyService.getFacultyStudents(1L, FacultyService.RosterSort.NAME, "0JPQsNGA0YDQuA:3", 1))
+                .thenReturn(new KeysetPage<>(List.of(student), "0JPQsNGA0YDQuCDQn9C-0YLRgtC10YA:5"));
+
+
+        mockMvc.perform(get("/faculty/1/students")
+                        .param("sort", "name")
+                        .param("after", "0JPQsNGA0YDQuA:3")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetPage.NEXT_CURSOR_HEADER, "0JPQsNGA0YDQuCDQn9C-0YLRgtC10YA:5"))
+                .andExpect(jsonPath("$[0].id").value(5L))
+                .andExpect(jsonPath("$[0].name").value("Гарри Поттер"))
+                .andExpect(jsonPath("$[0].facultyId").value(1L));
+    }
+
+    @Test
+    void getFacultyStudents_WithUnknownSort_ShouldReturnBadRequest() throws Exception {
+
+        mockMvc.perform(get("/faculty/1/students").param("sort", "house"))
+                .andExpect(status().isBadRequest());
+
+        verify(facultyService, never()).getFacultyStudents(anyLong(), any(), any(), eq(100));
+    }
+
+    @Test
+    void countFacultyStudents_ShouldReturnCount() throws Exception {
+
+        when(facultyService.countFacultyStudents(1L)).thenReturn(42L);
+
+
+        mockMvc.perform(get("/faculty/1/students/count"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("42"));
+    }
+}
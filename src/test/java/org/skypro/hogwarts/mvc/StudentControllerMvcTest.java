@@ -3,17 +3,28 @@ package org.skypro.hogwarts.mvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.skypro.hogwarts.controller.StudentController;
+import org.skypro.hogwarts.dto.KeysetPage;
+import org.skypro.hogwarts.dto.StudentImportBatchResult;
+import org.skypro.hogwarts.dto.StudentImportReport;
+import org.skypro.hogwarts.dto.StudentName;
 import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.service.StudentExportService;
+import org.skypro.hogwarts.service.StudentImportService;
 import org.skypro.hogwarts.service.StudentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +41,12 @@ class StudentControllerMvcTest {
     @MockBean
     private StudentService studentService;
 
+    @MockBean
+    private StudentExportService studentExportService;
+
+    @MockBean
+    private StudentImportService studentImportService;
+
     private final Student testStudent = new Student("Гарри Поттер", 17);
 
     @Test
@@ -102,7 +119,7 @@ class StudentControllerMvcTest {
     @Test
     void getStudentsByAge_ShouldReturnStudentsList() throws Exception {
 
-        when(studentService.getStudentsByAge(17)).thenReturn(List.of(testStudent));
+        when(studentService.getStudentsByAge(17, null, 100)).thenReturn(new KeysetPage<>(List.of(testStudent), null));
 
 
         mockMvc.perform(get("/student/by-age")
@@ -115,7 +132,7 @@ class StudentControllerMvcTest {
     @Test
     void getAllStudents_ShouldReturnAllStudents() throws Exception {
 
-        when(studentService.getAllStudents()).thenReturn(List.of(testStudent));
+        when(studentService.getAllStudents(null, 100)).thenReturn(new KeysetPage<>(List.of(testStudent), null));
 
 
         mockMvc.perform(get("/student"))
@@ -123,4 +140,108 @@ class StudentControllerMvcTest {
                 .andExpect(jsonPath("$[0].name").value("Гарри Поттер"))
                 .andExpect(jsonPath("$[0].age").value(17));
     }
+
+    @Test
+    void getStudentsOrderedByAge_ShouldPassCursorAndReturnNextCursor() throws Exception {
+        testStudent.setId(5L);
+        when(studentService.getStudentsOrderedByAge("16:3", 1))
+                .thenReturn(new KeysetPage<>(List.of(testStudent), "17:5"));
+
+        mockMvc.perform(get("/student/ordered-by-age")
+                        .param("after", "16:3")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetPage.NEXT_CURSOR_HEADER, "17:5"))
+                .andExpect(jsonPath("$[0].id").value(5L))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void getAllStudents_LastPage_ShouldNotReturnNextCursor() throws Exception {
+        when(studentService.getAllStudents(10L, 50)).thenReturn(new KeysetPage<>(List.of(), null));
+
+        mockMvc.perform(get("/student")
+                        .param("after", "10")
+                        .param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(KeysetPage.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void exportStudents_ShouldStreamCsv() throws Exception {
+        when(studentExportService.exportStudents(eq(StudentExportService.Format.CSV), any(OutputStream.class)))
+                .thenAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(1);
+                    out.write("id,name,age,faculty_id\n1,Гарри Поттер,17,\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        mockMvc.perform(get("/student/export")
+                        .param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"students.csv\""))
+                .andExpect(content().string("id,name,age,faculty_id\n1,Гарри Поттер,17,\n"));
+    }
+
+    @Test
+    void exportStudents_UnknownFormat_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/student/export")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importStudentsCsv_ShouldReportBatches() throws Exception {
+        when(studentImportService.importCsv(any(InputStream.class))).thenReturn(new StudentImportReport(List.of(
+                StudentImportBatchResult.imported(1, 1, 500),
+                StudentImportBatchResult.failed(2, 501, 3, "Строка 502: нужны имя и неотрицательный возраст"))));
+
+        mockMvc.perform(post("/student/import")
+                        .contentType("text/csv")
+                        .content("name,age\nГарри Поттер,17\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(503))
+                .andExpect(jsonPath("$.imported").value(500))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.batches[1].firstRow").value(501))
+                .andExpect(jsonPath("$.batches[1].imported").value(false));
+    }
+
+    @Test
+    void getAgeHistogram_ShouldReturnStudentsPerAge() throws Exception {
+        when(studentService.getAgeHistogram()).thenReturn(Map.of(11, 40L, 17, 25L));
+
+        mockMvc.perform(get("/student/age-histogram"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.11").value(40))
+                .andExpect(jsonPath("$.17").value(25));
+    }
+
+    @Test
+    void getStudentsByName_ShouldReturnRankedPage() throws Exception {
+        testStudent.setId(3L);
+        when(studentService.getStudentsByNameContaining("поттер", null, 1))
+                .thenReturn(new KeysetPage<>(List.of(testStudent), "3"));
+
+        mockMvc.perform(get("/student/by-name")
+                        .param("name", "поттер")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetPage.NEXT_CURSOR_HEADER, "3"))
+                .andExpect(jsonPath("$[0].name").value("Гарри Поттер"));
+    }
+
+    @Test
+    void autocompleteStudentNames_ShouldReturnMatchesFromIndex() throws Exception {
+        when(studentService.autocompleteStudentNames("гар", 10))
+                .thenReturn(List.of(new StudentName(1L, "Гарри Поттер")));
+
+        mockMvc.perform(get("/student/autocomplete")
+                        .param("prefix", "гар"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[0].name").value("Гарри Поттер"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.skypro.hogwarts.dto.AvatarImportReport;
+import org.skypro.hogwarts.dto.AvatarImportResult;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.repository.AvatarBatchRepository;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import org.skypro.hogwarts.storage.AvatarStorage;
+import org.skypro.hogwarts.storage.AvatarStore;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AvatarBulkImportServiceTest {
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarStorage avatarStorage = mock(AvatarStorage.class);
+    private final AvatarBatchRepository avatarBatchRepository = mock(AvatarBatchRepository.class);
+    private final List<Blob> preparedData = new CopyOnWriteArrayList<>();
+    private AvatarBulkImportService importService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Хранилище с LOB: подготовленная аватарка несет Blob, который импорт должен освободить
+        when(avatarStorage.prepare(any(Avatar.class), any(InputStream.class))).thenAnswer(invocation -> {
+            Avatar avatar = invocation.getArgument(0);
+            avatar.setFileSize(invocation.getArgument(1, InputStream.class).readAllBytes().length);
+            Blob data = mock(Blob.class);
+            preparedData.add(data);
+            avatar.setData(data);
+            return avatar;
+        });
+        when(avatarBatchRepository.lockExistingStudentIds(any())).thenAnswer(invocation ->
+                new HashSet<>(invocation.<Collection<Long>>getArgument(0)));
+        doAnswer(invocation -> {
+            invocation.<List<Avatar>>getArgument(0).forEach(avatar -> avatar.setId(avatar.getStudent().getId()));
+            return null;
+        }).when(avatarBatchRepository).insertAll(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void importArchive_WhenEntryExceedsMaxSize_ShouldRejectOnlyThatEntry() throws Exception {
+
+        importService = newService(DataSize.ofBytes(100), DataSize.ofBytes(10_000));
+        byte[] archive = zip(new byte[50], new byte[500], new byte[50]);
+
+
+        AvatarImportReport report = importService.importArchive(new ByteArrayInputStream(archive));
+
+
+        assertEquals(3, report.total());
+        assertEquals(2, report.imported());
+        AvatarImportResult rejected = report.items().stream().filter(item -> !item.imported()).findFirst().orElseThrow();
+        assertEquals(2L, rejected.studentId());
+        verify(avatarStorage, never()).prepare(argThat(avatar -> avatar.getStudent().getId() == 2L), any());
+    }
+
+    @Test
+    void importArchive_WhenArchiveExceedsTotalSize_ShouldStopReading() throws Exception {
+
+        importService = newService(DataSize.ofBytes(100), DataSize.ofBytes(120));
+        byte[] archive = zip(new byte[50], new byte[50], new byte[50]);
+
+
+        AvatarImportReport report = importService.importArchive(new ByteArrayInputStream(archive));
+
+
+        assertEquals(2, report.imported());
+        assertEquals(1, report.failed());
+        verify(avatarStorage, never()).prepare(argThat(avatar -> avatar.getStudent().getId() == 3L), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void importArchive_WhenStorageKeepsLob_ShouldInsertRowsInBatchesAndFreePreparedData() throws Exception {
+
+        importService = newService(DataSize.ofBytes(100), DataSize.ofBytes(10_000));
+        byte[] archive = zip(new byte[10], new byte[20], new byte[30], new byte[40], new byte[50]);
+
+
+        AvatarImportReport report = importService.importArchive(new ByteArrayInputStream(archive));
+
+
+        assertEquals(5, report.imported());
+        ArgumentCaptor<List<Avatar>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(avatarBatchRepository, atLeastOnce()).insertAll(inserts.capture());
+        assertEquals(5, inserts.getAllValues().stream().mapToInt(List::size).sum());
+        assertTrue(inserts.getAllValues().stream().flatMap(List::stream).allMatch(avatar -> avatar.getData() != null));
+        assertEquals(5, preparedData.size());
+        for (Blob data : preparedData) {
+            verify(data).free();
+        }
+    }
+
+    private AvatarBulkImportService newService(DataSize maxEntrySize, DataSize maxArchiveSize) {
+        AvatarStore avatarStore = new AvatarStore(mock(AvatarContentRepository.class), avatarsDir.toString());
+        return new AvatarBulkImportService(avatarStorage, avatarStore, avatarBatchRepository, mock(AvatarCache.class), mock(AvatarVariantService.class),
+                mock(PlatformTransactionManager.class), 2, 1, 10, maxEntrySize, maxArchiveSize);
+    }
+
+    // Записи называются по id студента начиная с 1
+    private static byte[] zip(byte[]... entries) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i++) {
+                zip.putNextEntry(new ZipEntry((i + 1) + ".png"));
+                zip.write(entries[i]);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
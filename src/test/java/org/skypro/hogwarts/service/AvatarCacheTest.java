@@ -0,0 +1,96 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.dto.AvatarCacheStats;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.model.AvatarData;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.unit.DataSize;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void get_WhenContentWasRead_ShouldServeRepeatedRequestFromCache() throws Exception {
+
+        AvatarCache cache = new AvatarCache(DataSize.ofKilobytes(10), DataSize.ofKilobytes(1), Duration.ofMinutes(1), false);
+        read(cache.get(AvatarCache.Source.DATABASE, 1L, null, loader(100)));
+
+
+        byte[] cached = read(cache.get(AvatarCache.Source.DATABASE, 1L, null, loader(100)));
+
+
+        assertEquals(1, loads.get());
+        assertEquals(100, cached.length);
+        assertEquals(1, cache.getStats().hits());
+    }
+
+    @Test
+    void invalidate_ShouldDropDatabaseEntryByAvatarIdAndFileEntriesByStudentId() throws Exception {
+
+        AvatarCache cache = new AvatarCache(DataSize.ofKilobytes(10), DataSize.ofKilobytes(1), Duration.ofMinutes(1), false);
+        read(cache.get(AvatarCache.Source.DATABASE, 1L, null, loader(100)));
+        read(cache.get(AvatarCache.Source.FILE, 7L, null, loader(100)));
+        read(cache.get(AvatarCache.Source.FILE, 7L, 128, loader(50)));
+        read(cache.get(AvatarCache.Source.FILE, 8L, null, loader(100)));
+
+
+        cache.invalidate(1L, 7L);
+
+
+        assertEquals(1, cache.getStats().entries());
+        read(cache.get(AvatarCache.Source.FILE, 8L, null, loader(100)));
+        read(cache.get(AvatarCache.Source.FILE, 7L, null, loader(100)));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void get_WhenContentExceedsMaxEntrySize_ShouldNotCacheIt() throws Exception {
+
+        AvatarCache cache = new AvatarCache(DataSize.ofKilobytes(10), DataSize.ofBytes(100), Duration.ofMinutes(1), false);
+        read(cache.get(AvatarCache.Source.DATABASE, 1L, null, loader(101)));
+
+
+        read(cache.get(AvatarCache.Source.DATABASE, 1L, null, loader(101)));
+
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getStats().entries());
+    }
+
+    @Test
+    void get_WhenContentExceedsCapacity_ShouldEvictByWeight() throws Exception {
+
+        AvatarCache cache = new AvatarCache(DataSize.ofBytes(1000), DataSize.ofBytes(1000), Duration.ofMinutes(1), true);
+
+
+        for (long id = 1; id <= 5; id++) {
+            read(cache.get(AvatarCache.Source.DATABASE, id, null, loader(400)));
+        }
+
+
+        AvatarCacheStats stats = cache.getStats();
+        assertTrue(stats.residentBytes() <= 1000);
+        assertEquals(stats.entries() * 400, stats.residentBytes());
+        assertEquals(5 - stats.entries(), stats.evictions());
+    }
+
+    private Supplier<Optional<AvatarData>> loader(int length) {
+        return () -> {
+            loads.incrementAndGet();
+            return Optional.of(new AvatarData(new Avatar(), new ByteArrayResource(new byte[length]), "image/png", "tag"));
+        };
+    }
+
+    private static byte[] read(Optional<AvatarData> data) throws Exception {
+        try (InputStream in = data.orElseThrow().resource().getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.skypro.hogwarts.dto.AvatarUploadRequest;
+import org.skypro.hogwarts.dto.AvatarUploadStatus;
+import org.skypro.hogwarts.model.AvatarUpload;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.AvatarUploadRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AvatarUploadServiceTest {
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarUploadRepository avatarUploadRepository = mock(AvatarUploadRepository.class);
+    private final AvatarService avatarService = mock(AvatarService.class);
+    private final StudentService studentService = mock(StudentService.class);
+    private AvatarUploadService avatarUploadService;
+
+    @BeforeEach
+    void setUp() {
+        avatarUploadService = new AvatarUploadService(avatarUploadRepository, avatarService, studentService,
+                avatarsDir.toString(), DataSize.ofKilobytes(1), Duration.ofHours(1));
+        when(studentService.findStudentById(1L)).thenReturn(Optional.of(new Student("Гарри Поттер", 17)));
+        when(avatarUploadRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void startUpload_WithoutStudentId_ShouldReturnBadRequest() {
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> avatarUploadService.startUpload(new AvatarUploadRequest(null, 10, "image/png")));
+
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(avatarUploadRepository);
+    }
+
+    @Test
+    void startUpload_WithMissingOrInvalidMediaType_ShouldReturnBadRequest() {
+
+        for (String mediaType : new String[]{null, " ", "garbage", "text/plain", "image/*"}) {
+            ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                    () -> avatarUploadService.startUpload(new AvatarUploadRequest(1L, 10, mediaType)));
+            assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode(), "Тип: " + mediaType);
+        }
+
+
+        verifyNoInteractions(avatarUploadRepository);
+    }
+
+    @Test
+    void writeChunk_ShouldWriteBytesAndAdvanceOffsetConditionally() throws Exception {
+
+        AvatarUploadStatus started = avatarUploadService.startUpload(new AvatarUploadRequest(1L, 6, "image/png"));
+        AvatarUpload upload = new AvatarUpload(started.uploadId(), 1L, "image/png", 6);
+        when(avatarUploadRepository.findById(started.uploadId())).thenReturn(Optional.of(upload));
+        when(avatarUploadRepository.advance(eq(started.uploadId()), eq(0L), eq(3L), any())).thenReturn(1);
+
+
+        AvatarUploadStatus status = avatarUploadService.writeChunk(started.uploadId(), 0,
+                new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+
+        assertEquals(3, status.offset());
+        assertArrayEquals(new byte[]{1, 2, 3},
+                Files.readAllBytes(avatarsDir.resolve("uploads").resolve(started.uploadId() + ".part")));
+    }
+
+    @Test
+    void writeChunk_WhenOffsetBeyondReceived_ShouldReturnConflict() {
+
+        AvatarUpload upload = new AvatarUpload("upload-1", 1L, "image/png", 6);
+        when(avatarUploadRepository.findById("upload-1")).thenReturn(Optional.of(upload));
+
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> avatarUploadService.writeChunk("upload-1", 4, new ByteArrayInputStream(new byte[2])));
+
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verify(avatarUploadRepository, never()).advance(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void completeUpload_WhenClaimedByAnotherRequest_ShouldNotStoreAvatarTwice() throws Exception {
+
+        AvatarUpload upload = new AvatarUpload("upload-1", 1L, "image/png", 6);
+        upload.setReceivedBytes(6);
+        when(avatarUploadRepository.findById("upload-1")).thenReturn(Optional.of(upload));
+        when(avatarUploadRepository.claimCompleted("upload-1")).thenReturn(0);
+
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> avatarUploadService.completeUpload("upload-1"));
+
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        verify(avatarService, never()).uploadAvatar(anyLong(), anyString(), any());
+    }
+}
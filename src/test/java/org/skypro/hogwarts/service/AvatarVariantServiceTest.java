@@ -0,0 +1,109 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.skypro.hogwarts.storage.AvatarStorage;
+import org.skypro.hogwarts.storage.AvatarStore;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvatarVariantServiceTest {
+    private static final String HASH = "ab".repeat(32);
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarRepository avatarRepository = mock(AvatarRepository.class);
+    private final AvatarStorage avatarStorage = mock(AvatarStorage.class);
+    private AvatarStore avatarStore;
+    private AvatarVariantService avatarVariantService;
+    private Avatar avatar;
+
+    @AfterEach
+    void tearDown() {
+        avatarVariantService.shutdown();
+    }
+
+    @Test
+    void findVariant_WhenOriginalIsSmaller_ShouldRememberToServeOriginal() throws Exception {
+
+        setUp(writeImage(100, 80), 25_000_000);
+
+
+        assertTrue(avatarVariantService.findVariant(avatar, 128).isEmpty());
+        awaitFile(avatarStore.resolveVariantMarker(HASH, 128));
+        Optional<?> repeated = avatarVariantService.findVariant(avatar, 128);
+
+
+        assertTrue(repeated.isEmpty());
+        assertTrue(Files.exists(avatarStore.resolveVariant(HASH, 64)));
+        assertFalse(Files.exists(avatarStore.resolveVariant(HASH, 128)));
+        verify(avatarRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void findVariant_WhenImageIsUndecodable_ShouldNotDecodeAgain() throws Exception {
+
+        Path file = avatarsDir.resolve("broken.png");
+        Files.write(file, new byte[]{(byte) 0x89, 'P', 'N', 'G', 1, 2, 3});
+        setUp(file, 25_000_000);
+
+
+        avatarVariantService.findVariant(avatar, 64);
+        awaitFile(avatarStore.resolveVariantMarker(HASH, 64));
+        avatarVariantService.findVariant(avatar, 64);
+
+
+        assertTrue(Files.exists(avatarStore.resolveVariantMarker(HASH, 256)));
+        verify(avatarRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void findVariant_WhenDeclaredPixelsExceedLimit_ShouldSkipDecoding() throws Exception {
+
+        setUp(writeImage(300, 300), 10_000);
+
+
+        avatarVariantService.findVariant(avatar, 64);
+        awaitFile(avatarStore.resolveVariantMarker(HASH, 64));
+
+
+        assertFalse(Files.exists(avatarStore.resolveVariant(HASH, 64)));
+    }
+
+    private void setUp(Path original, long maxPixels) {
+        avatarStore = new AvatarStore(mock(AvatarContentRepository.class), avatarsDir.toString());
+        avatarVariantService = new AvatarVariantService(avatarRepository, avatarStorage, avatarStore,
+                mock(PlatformTransactionManager.class), List.of(64, 128, 256), 1, 10, maxPixels);
+        avatar = new Avatar();
+        avatar.setId(1L);
+        avatar.setContentDigest(HASH);
+        when(avatarRepository.findById(1L)).thenReturn(Optional.of(avatar));
+        when(avatarStorage.readFromFile(avatar)).thenReturn(Optional.of(new FileSystemResource(original)));
+    }
+
+    private Path writeImage(int width, int height) throws Exception {
+        Path file = avatarsDir.resolve("original-" + width + "x" + height + ".png");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file;
+    }
+
+    private static void awaitFile(Path file) throws InterruptedException {
+        for (int attempt = 0; attempt < 200 && !Files.exists(file); attempt++) {
+            Thread.sleep(25);
+        }
+        assertTrue(Files.exists(file), "Файл не появился: " + file);
+    }
+}
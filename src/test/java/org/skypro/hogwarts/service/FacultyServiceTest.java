@@ -0,0 +1,68 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.dto.KeysetPage;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.FacultyRepository;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FacultyServiceTest {
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final FacultyService facultyService =
+            new FacultyService(mock(FacultyRepository.class), studentRepository, 1000);
+
+    @Test
+    void getFacultyStudents_WhenSortedByName_ShouldCarryNameInCursor() {
+
+        when(studentRepository.findByFacultyIdOrderedByNameAfter(1L, "", 0L, Limit.of(1)))
+                .thenReturn(List.of(student(5L, "Гарри Поттер", 17)));
+        when(studentRepository.findByFacultyIdOrderedByNameAfter(1L, "Гарри Поттер", 5L, Limit.of(1)))
+                .thenReturn(List.of());
+
+
+        KeysetPage<Student> first = facultyService.getFacultyStudents(1L, FacultyService.RosterSort.NAME, null, 1);
+        KeysetPage<Student> second = facultyService.getFacultyStudents(1L, FacultyService.RosterSort.NAME,
+                first.nextCursor(), 1);
+
+
+        assertEquals("0JPQsNGA0YDQuCDQn9C-0YLRgtC10YA:5", first.nextCursor());
+        assertTrue(second.items().isEmpty());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void getFacultyStudents_WhenSortedByAge_ShouldResumeFromAgeAndIdInCursor() {
+
+        when(studentRepository.findByFacultyIdOrderedByAgeAfter(1L, 17, 5L, Limit.of(1)))
+                .thenReturn(List.of(student(8L, "Рон Уизли", 17)));
+
+
+        KeysetPage<Student> page = facultyService.getFacultyStudents(1L, FacultyService.RosterSort.AGE, "17:5", 1);
+
+
+        assertEquals("17:8", page.nextCursor());
+    }
+
+    @Test
+    void getFacultyStudents_WithMalformedCursor_ShouldReturnBadRequest() {
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> facultyService.getFacultyStudents(1L, FacultyService.RosterSort.AGE, "5", 1));
+
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(studentRepository);
+    }
+
+    private static Student student(long id, String name, int age) {
+        Student student = new Student(name, age);
+        student.setId(id);
+        return student;
+    }
+}
@@ -0,0 +1,136 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.dto.StudentAge;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StudentAgeIndexTest {
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final StudentAgeIndex ageIndex =
+            new StudentAgeIndex(studentRepository, mock(PlatformTransactionManager.class));
+
+    @Test
+    void add_WhenIdsArriveOutOfOrderAndRepeat_ShouldKeepBucketSortedWithoutDuplicates() {
+
+        for (long id : new long[]{5, 1, 40, 3, 5, 20}) {
+            ageIndex.add(id, 11);
+        }
+
+
+        long[] ids = ageIndex.findByAge(11, 0, 10);
+
+
+        assertArrayEquals(new long[]{1, 3, 5, 20, 40}, ids);
+    }
+
+    @Test
+    void add_WhenBucketGrowsPastInitialCapacity_ShouldKeepAllIds() {
+
+        for (long id = 100; id > 0; id--) {
+            ageIndex.add(id, 12);
+        }
+
+
+        long[] ids = ageIndex.findByAge(12, 0, 200);
+
+
+        assertEquals(100, ids.length);
+        assertEquals(1, ids[0]);
+        assertEquals(100, ids[99]);
+    }
+
+    @Test
+    void removeAndMove_ShouldUpdateBuckets() {
+
+        ageIndex.add(1, 11);
+        ageIndex.add(2, 11);
+        ageIndex.add(3, 11);
+
+
+        ageIndex.remove(2, 11);
+        ageIndex.move(3, 11, 12);
+        ageIndex.remove(99, 11);
+        ageIndex.remove(1, 30);
+
+
+        assertArrayEquals(new long[]{1}, ageIndex.findByAge(11, 0, 10));
+        assertArrayEquals(new long[]{3}, ageIndex.findByAge(12, 0, 10));
+    }
+
+    @Test
+    void findByAge_ShouldPageAfterCursor() {
+
+        for (long id = 1; id <= 6; id++) {
+            ageIndex.add(id, 11);
+        }
+
+
+        long[] first = ageIndex.findByAge(11, 0, 4);
+        long[] second = ageIndex.findByAge(11, first[first.length - 1], 4);
+
+
+        assertArrayEquals(new long[]{1, 2, 3, 4}, first);
+        assertArrayEquals(new long[]{5, 6}, second);
+        assertEquals(0, ageIndex.findByAge(99, 0, 4).length);
+    }
+
+    @Test
+    void findByAgeRange_ShouldOrderByAgeThenIdAndResumeFromCursor() {
+
+        ageIndex.add(7, 10);
+        ageIndex.add(2, 11);
+        ageIndex.add(9, 11);
+        ageIndex.add(1, 12);
+        ageIndex.add(4, 13);
+
+
+        StudentAgeIndex.AgeRangePage first = ageIndex.findByAgeRange(11, 13, 11, Long.MIN_VALUE, 2);
+        StudentAgeIndex.AgeRangePage second = ageIndex.findByAgeRange(11, 13, first.lastAge(), 9, 2);
+
+
+        assertArrayEquals(new long[]{2, 9}, first.ids());
+        assertEquals(11, first.lastAge());
+        assertArrayEquals(new long[]{1, 4}, second.ids());
+        assertEquals(13, second.lastAge());
+        assertEquals(0, ageIndex.findByAgeRange(13, 11, 0, 0, 10).ids().length);
+        assertEquals(0, ageIndex.findByAgeRange(10, 12, 13, 0, 10).ids().length);
+    }
+
+    @Test
+    void rebuild_WhenStudentsChangedBypassingJpa_ShouldDropStaleIds() {
+
+        when(studentRepository.streamAgesBy()).thenReturn(
+                Stream.of(new StudentAge(1L, 11), new StudentAge(2L, 11), new StudentAge(3L, 12)),
+                Stream.of(new StudentAge(2L, 11), new StudentAge(3L, 13)));
+        ageIndex.build();
+
+
+        ageIndex.rebuild();
+
+
+        assertArrayEquals(new long[]{2}, ageIndex.findByAge(11, 0, 10));
+        assertEquals(0, ageIndex.findByAge(12, 0, 10).length);
+        assertArrayEquals(new long[]{3}, ageIndex.findByAge(13, 0, 10));
+    }
+
+    @Test
+    void add_WhenCalledDuringRebuild_ShouldSurviveSwap() {
+
+        when(studentRepository.streamAgesBy()).thenAnswer(invocation -> {
+            ageIndex.add(5L, 14);
+            return Stream.of(new StudentAge(1L, 11));
+        });
+
+
+        ageIndex.rebuild();
+
+
+        assertArrayEquals(new long[]{1}, ageIndex.findByAge(11, 0, 10));
+        assertArrayEquals(new long[]{5}, ageIndex.findByAge(14, 0, 10));
+    }
+}
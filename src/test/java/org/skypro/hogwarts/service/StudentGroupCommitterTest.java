@@ -0,0 +1,119 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StudentGroupCommitterTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AtomicLong ids = new AtomicLong();
+    private StudentGroupCommitter committer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        committer.stop();
+    }
+
+    @Test
+    void create_FromConcurrentThreads_ShouldCommitInGroupsAndReturnIds() throws Exception {
+
+        when(studentRepository.save(any())).thenAnswer(invocation -> {
+            Student student = invocation.getArgument(0);
+            student.setId(ids.incrementAndGet());
+            return student;
+        });
+        start(Duration.ofMillis(50), Duration.ofSeconds(10));
+        ExecutorService callers = Executors.newFixedThreadPool(20);
+
+
+        List<Future<Student>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Student student = new Student("Студент " + i, 17);
+            results.add(callers.submit(() -> committer.create(student)));
+        }
+        Set<Long> createdIds = new HashSet<>();
+        for (Future<Student> result : results) {
+            createdIds.add(result.get().getId());
+        }
+        callers.shutdown();
+
+
+        assertEquals(100, createdIds.size());
+        verify(studentRepository, times(100)).save(any());
+        verify(transactionManager, atMost(99)).getTransaction(any());
+    }
+
+    @Test
+    void create_AfterStop_ShouldFailFast() throws Exception {
+
+        start(Duration.ofMillis(2), Duration.ofSeconds(10));
+        committer.stop();
+
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> committer.create(new Student("Гарри Поттер", 17)));
+
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+    }
+
+    @Test
+    void create_WhenWorkerDies_ShouldFailWaitingAndQueuedCallers() {
+
+        when(studentRepository.save(any())).thenThrow(new AssertionError("Поток записи упал"));
+        start(Duration.ofMillis(2), Duration.ofSeconds(10));
+
+
+        ResponseStatusException exception = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(ResponseStatusException.class, () -> committer.create(new Student("Гарри Поттер", 17))));
+        ResponseStatusException afterDeath = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(ResponseStatusException.class, () -> committer.create(new Student("Рон Уизли", 17))));
+
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, afterDeath.getStatusCode());
+    }
+
+    @Test
+    void create_WhenCommitHangs_ShouldGiveUpAfterWaitTimeout() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(studentRepository.save(any())).thenAnswer(invocation -> {
+            release.await();
+            return invocation.getArgument(0);
+        });
+        start(Duration.ofMillis(2), Duration.ofMillis(200));
+
+
+        ResponseStatusException exception = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(ResponseStatusException.class, () -> committer.create(new Student("Гарри Поттер", 17))));
+        release.countDown();
+
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+    }
+
+    private void start(Duration maxDelay, Duration waitTimeout) {
+        committer = new StudentGroupCommitter(studentRepository, transactionManager, 50, maxDelay, 1000, waitTimeout);
+        committer.start();
+    }
+}
@@ -0,0 +1,110 @@
+package org.skypro.hogwarts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.dto.StudentImportReport;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StudentImportServiceTest {
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Student> persisted = new ArrayList<>();
+
+    @Test
+    void importCsv_WhenExportedNamesHaveQuotesCommasAndNewlines_ShouldRestoreThem() throws Exception {
+
+        List<String> names = List.of("Гарри", "Рон, младший", "Луна \"Полоумная\" Лавгуд", "Невилл\nДолгопупс",
+                "Драко\r\nМалфой, \"\"");
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            Student student = new Student(names.get(i), 11 + i);
+            student.setId(i + 1L);
+            students.add(student);
+        }
+        when(studentRepository.streamAllByOrderByIdAsc()).thenReturn(students.stream());
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any(Student.class));
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        new StudentExportService(studentRepository, entityManager, objectMapper, 1000)
+                .exportStudents(StudentExportService.Format.CSV, csv);
+
+
+        StudentImportReport report = newImportService(10).importCsv(new ByteArrayInputStream(csv.toByteArray()));
+
+
+        assertEquals(names.size(), report.imported());
+        assertEquals(names, persisted.stream().map(Student::getName).toList());
+        assertEquals(List.of(11, 12, 13, 14, 15), persisted.stream().map(Student::getAge).toList());
+    }
+
+    @Test
+    void importCsv_WhenQuotedFieldIsNotClosed_ShouldFailPendingBatch() throws Exception {
+
+        String csv = "name,age\nГарри,11\n\"Рон,12\n";
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+
+
+        StudentImportReport report = newImportService(10)
+                .importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+
+        // Незаписанная пачка отмечается ошибкой вместе с нечитаемой строкой
+        assertEquals(0, report.imported());
+        assertEquals(2, report.failed());
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void importCsv_WhenAgeIsNotNumberInMiddleOfFile_ShouldFailOnlyItsBatch() throws Exception {
+
+        String csv = "name,age\nГарри,11\nРон,12\nГермиона,много\nДрако,14\nЛуна,15\nНевилл,16\n";
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any(Student.class));
+
+
+        StudentImportReport report = newImportService(2)
+                .importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+
+        assertEquals(6, report.total());
+        assertEquals(4, report.imported());
+        assertEquals(2, report.failed());
+        assertFalse(report.batches().get(1).imported());
+        assertTrue(report.batches().get(1).message().contains("много"));
+        assertTrue(report.batches().get(2).imported());
+    }
+
+    @Test
+    void importJson_WhenNumbersAreJsonNumbers_ShouldImportThem() throws Exception {
+
+        String json = "[{\"name\":\"Гарри\",\"age\":11,\"facultyId\":null},{\"name\":\"Рон\",\"age\":12}]";
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any(Student.class));
+
+
+        StudentImportReport report = newImportService(10)
+                .importJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+
+        assertEquals(2, report.imported());
+        assertEquals(List.of(11, 12), persisted.stream().map(Student::getAge).toList());
+    }
+
+    private StudentImportService newImportService(int batchSize) {
+        return new StudentImportService(entityManager, objectMapper, mock(PlatformTransactionManager.class), batchSize);
+    }
+}
@@ -0,0 +1,58 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.dto.StudentName;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StudentNameIndexTest {
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final StudentNameIndex nameIndex =
+            new StudentNameIndex(studentRepository, mock(PlatformTransactionManager.class));
+
+    @Test
+    void rebuild_WhenStudentsChangedBypassingJpa_ShouldReplaceStaleNames() {
+
+        when(studentRepository.streamNamesBy()).thenReturn(
+                Stream.of(new StudentName(1L, "Гарри"), new StudentName(2L, "Гермиона")),
+                Stream.of(new StudentName(2L, "Гермиона")));
+        nameIndex.build();
+
+
+        nameIndex.rebuild();
+
+
+        assertEquals(List.of(new StudentName(2L, "Гермиона")), nameIndex.findByPrefix("г", 10));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void onRemove_WhenStudentIsDeletedByCascade_ShouldDropNameFromIndex() {
+
+        ObjectProvider<StudentNameIndex> provider = mock(ObjectProvider.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<StudentNameIndex>>getArgument(0).accept(nameIndex);
+            return null;
+        }).when(provider).ifAvailable(any());
+        StudentChangeListener listener = new StudentChangeListener(
+                mock(StudentStatistics.class), mock(ObjectProvider.class), provider);
+        Student student = new Student("Рон", 11);
+        student.setId(3L);
+        listener.onLoad(student);
+        nameIndex.add(3L, "Рон");
+        student.setName("Рональд");
+
+
+        listener.onRemove(student);
+
+
+        assertTrue(nameIndex.findByPrefix("рон", 10).isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.dto.KeysetPage;
+import org.skypro.hogwarts.dto.StudentMatch;
+import org.skypro.hogwarts.model.Student;
+import org.skypro.hogwarts.repository.StudentRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class StudentServiceTest {
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+
+    @SuppressWarnings("unchecked")
+    private final StudentService studentService = new StudentService(studentRepository,
+            mock(ObjectProvider.class), mock(StudentStatistics.class), mock(StudentNameIndex.class),
+            mock(ObjectProvider.class), 1000);
+
+    @Test
+    void getStudentsByNameContaining_WhenFoundStudentIsDeletedBeforeLoad_ShouldKeepNextCursor() {
+
+        when(studentRepository.searchByName("гер", "%гер%", Float.POSITIVE_INFINITY, 0L, 3))
+                .thenReturn(List.of(match(4L, 1.0f), match(9L, 0.5f), match(12L, 0.1f)));
+        when(studentRepository.findByIdIn(anyList())).thenReturn(List.of(student(4L), student(9L)));
+
+
+        KeysetPage<Student> page = studentService.getStudentsByNameContaining("гер", null, 3);
+
+
+        assertEquals(List.of(4L, 9L), page.items().stream().map(Student::getId).toList());
+        assertEquals("0.1:12", page.nextCursor());
+    }
+
+    @Test
+    void getStudentsByNameContaining_ShouldResumeFromSimilarityInCursor() {
+
+        when(studentRepository.searchByName("гер", "%гер%", 0.1f, 12L, 3)).thenReturn(List.of(match(15L, 0.1f)));
+        when(studentRepository.findByIdIn(anyList())).thenReturn(List.of(student(15L)));
+
+
+        KeysetPage<Student> page = studentService.getStudentsByNameContaining("гер", "0.1:12", 3);
+
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getStudentsByNameContaining_WithMalformedCursor_ShouldReturnBadRequest() {
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> studentService.getStudentsByNameContaining("гер", "12", 3));
+
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(studentRepository);
+    }
+
+    private static StudentMatch match(long id, float similarity) {
+        return new StudentMatch() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public float getSimilarity() {
+                return similarity;
+            }
+        };
+    }
+
+    private static Student student(long id) {
+        Student student = new Student("Гермиона", 11);
+        student.setId(id);
+        return student;
+    }
+}
@@ -0,0 +1,57 @@
+package org.skypro.hogwarts.service;
+
+import org.junit.jupiter.api.Test;
+import org.skypro.hogwarts.repository.StudentStatisticsRepository;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StudentStatisticsTest {
+    private final StudentStatisticsRepository statisticsRepository = mock(StudentStatisticsRepository.class);
+    private final StudentStatistics statistics = new StudentStatistics(statisticsRepository);
+
+    @Test
+    void onCreated_WhenCommittedDuringReconcile_ShouldBeAppliedOnTopOfSnapshot() throws Exception {
+
+        CountDownLatch snapshotTaken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(statisticsRepository.countByAge()).thenAnswer(invocation -> {
+            snapshotTaken.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of(11, 2L);
+        });
+        CompletableFuture<Void> reconcile = CompletableFuture.runAsync(statistics::reconcile);
+        assertTrue(snapshotTaken.await(5, TimeUnit.SECONDS));
+
+
+        CompletableFuture<Void> created = CompletableFuture.runAsync(() -> statistics.onCreated(12));
+        Thread.sleep(100);
+        boolean appliedBeforeReconcileFinished = created.isDone();
+        release.countDown();
+        reconcile.get(5, TimeUnit.SECONDS);
+        created.get(5, TimeUnit.SECONDS);
+
+
+        assertFalse(appliedBeforeReconcileFinished);
+        assertEquals(3, statistics.getCount());
+        assertEquals(Map.of(11, 2L, 12, 1L), statistics.getAgeHistogram());
+    }
+
+    @Test
+    void onAgeChanged_ShouldMoveStudentBetweenAges() {
+
+        when(statisticsRepository.countByAge()).thenReturn(Map.of(11, 2L));
+        statistics.reconcile();
+
+
+        statistics.onAgeChanged(11, 13);
+
+
+        assertEquals(2, statistics.getCount());
+        assertEquals(12.0, statistics.getAverageAge());
+        assertEquals(Map.of(11, 1L, 13, 1L), statistics.getAgeHistogram());
+    }
+}
@@ -0,0 +1,87 @@
+package org.skypro.hogwarts.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.skypro.hogwarts.repository.JobCheckpointRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import javax.sql.rowset.serial.SerialBlob;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AvatarLobMigrationJobTest {
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarRepository avatarRepository = mock(AvatarRepository.class);
+    private final JobCheckpointRepository jobCheckpointRepository = mock(JobCheckpointRepository.class);
+
+    @Test
+    void migrateNextBatch_WhenStoredCopyDiffersFromLob_ShouldKeepLob() throws Exception {
+
+        AvatarStore avatarStore = new AvatarStore(mock(AvatarContentRepository.class), avatarsDir.toString());
+        byte[] lob = {1, 2, 3, 4};
+        String hash = avatarStore.store(new ByteArrayInputStream(lob)).hash();
+        Path file = avatarStore.resolve(hash);
+        // Файл с тем же именем и размером, но другим содержимым
+        Files.write(file, new byte[]{4, 3, 2, 1});
+        givenAvatar(lob, hash, file);
+
+
+        newJob(avatarStore, AvatarStorageMode.DUAL).migrateNextBatch();
+
+
+        verify(avatarRepository, never()).unlinkData(anyLong());
+        verify(avatarRepository, never()).moveDataToFile(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void migrateNextBatch_WhenDigestIsMissing_ShouldVerifyStoredFileAgainstLob() throws Exception {
+
+        AvatarStore avatarStore = new AvatarStore(mock(AvatarContentRepository.class), avatarsDir.toString());
+        byte[] lob = {1, 2, 3, 4};
+        givenAvatar(lob, null, null);
+
+
+        newJob(avatarStore, AvatarStorageMode.DUAL).migrateNextBatch();
+
+
+        String hash = avatarStore.store(new ByteArrayInputStream(lob)).hash();
+        verify(avatarRepository).unlinkData(1L);
+        verify(avatarRepository).moveDataToFile(1L, avatarStore.resolve(hash).toString(), hash);
+    }
+
+    @Test
+    void constructor_WhenStorageModeIsDatabase_ShouldRefuseToStart() {
+
+        AvatarStore avatarStore = new AvatarStore(mock(AvatarContentRepository.class), avatarsDir.toString());
+
+
+        assertThrows(IllegalStateException.class, () -> newJob(avatarStore, AvatarStorageMode.DATABASE));
+    }
+
+    private void givenAvatar(byte[] lob, String digest, Path file) throws Exception {
+        Avatar avatar = new Avatar(file != null ? file.toString() : null, lob.length, "image/png",
+                new SerialBlob(lob), null);
+        avatar.setId(1L);
+        avatar.setContentDigest(digest);
+        when(jobCheckpointRepository.findById(AvatarLobMigrationJob.CHECKPOINT_NAME)).thenReturn(Optional.empty());
+        when(avatarRepository.findIdsWithDataAfter(eq(0L), any(Limit.class))).thenReturn(List.of(1L));
+        when(avatarRepository.findById(1L)).thenReturn(Optional.of(avatar));
+    }
+
+    private AvatarLobMigrationJob newJob(AvatarStore avatarStore, AvatarStorageMode mode) {
+        return new AvatarLobMigrationJob(avatarRepository, jobCheckpointRepository, avatarStore,
+                mock(PlatformTransactionManager.class), 10, 0, mode);
+    }
+}
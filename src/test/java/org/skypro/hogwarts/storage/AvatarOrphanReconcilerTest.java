@@ -0,0 +1,88 @@
+package org.skypro.hogwarts.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.skypro.hogwarts.repository.JobCheckpointRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AvatarOrphanReconcilerTest {
+    private static final String HASH = "ab".repeat(32);
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarRepository avatarRepository = mock(AvatarRepository.class);
+    private final AvatarContentRepository avatarContentRepository = mock(AvatarContentRepository.class);
+
+    @Test
+    void reconcile_WhenContentIsUnreferenced_ShouldDeleteFileAndRefCountRow() throws Exception {
+
+        Path file = writeContent(Instant.now().minus(Duration.ofDays(1)));
+        when(avatarRepository.findExistingDigests(any())).thenReturn(List.of());
+
+
+        reconciler().reconcile();
+
+
+        assertFalse(Files.exists(file));
+        verify(avatarContentRepository).findForUpdate(HASH);
+        verify(avatarContentRepository).deleteIfOrphaned(HASH);
+        verify(avatarContentRepository, never()).deleteById(anyString());
+    }
+
+    @Test
+    void reconcile_WhenUploadDedupsOntoHashAfterBatchCheck_ShouldKeepFileAndRow() throws Exception {
+
+        Path file = writeContent(Instant.now().minus(Duration.ofDays(1)));
+        // Пакетная проверка не видит ссылок, а повторная под блокировкой видит зафиксированную загрузку
+        when(avatarRepository.findExistingDigests(any())).thenReturn(List.of(), List.of(HASH));
+
+
+        reconciler().reconcile();
+
+
+        assertTrue(Files.exists(file));
+        verify(avatarContentRepository, never()).deleteIfOrphaned(anyString());
+    }
+
+    @Test
+    void reconcile_WhenFileIsNewerThanMinAge_ShouldKeepIt() throws Exception {
+
+        Path file = writeContent(Instant.now());
+        when(avatarRepository.findExistingDigests(any())).thenReturn(List.of());
+
+
+        reconciler().reconcile();
+
+
+        assertTrue(Files.exists(file));
+        verify(avatarContentRepository, never()).deleteIfOrphaned(anyString());
+    }
+
+    private AvatarOrphanReconciler reconciler() {
+        return new AvatarOrphanReconciler(avatarRepository, avatarContentRepository,
+                mock(JobCheckpointRepository.class), mock(AvatarStorage.class),
+                mock(PlatformTransactionManager.class), avatarsDir.toString(),
+                AvatarOrphanReconciler.Action.DELETE, 1000, 0, 100, Duration.ofHours(1));
+    }
+
+    private Path writeContent(Instant modifiedAt) throws Exception {
+        Path file = avatarsDir.resolve(HASH.substring(0, 2)).resolve(HASH.substring(2, 4)).resolve(HASH);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{1, 2, 3});
+        Files.setLastModifiedTime(file, FileTime.from(modifiedAt));
+        return file;
+    }
+}
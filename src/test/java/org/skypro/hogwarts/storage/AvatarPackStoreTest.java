@@ -0,0 +1,149 @@
+package org.skypro.hogwarts.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AvatarPackStoreTest {
+    // Заголовок записи 40 байт: в сегмент 300 байт помещаются две записи по 100 байт
+    private static final DataSize SEGMENT_SIZE = DataSize.ofBytes(300);
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarRepository avatarRepository = mock(AvatarRepository.class);
+    private final List<AvatarPackStore> openStores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        openStores.forEach(AvatarPackStore::close);
+    }
+
+    @Test
+    void open_ShouldRebuildIndexFromSegmentHeaders() throws Exception {
+
+        AvatarPackStore store = openStore(Duration.ZERO);
+        StoredContent first = store.append(content(1));
+        StoredContent second = store.append(content(2));
+        StoredContent third = store.append(content(3));
+        store.close();
+
+
+        AvatarPackStore reopened = openStore(Duration.ZERO);
+
+
+        assertArrayEquals(bytes(1), read(reopened, first.hash()));
+        assertArrayEquals(bytes(2), read(reopened, second.hash()));
+        assertArrayEquals(bytes(3), read(reopened, third.hash()));
+        assertEquals(2, segmentFiles().size());
+    }
+
+    @Test
+    void open_AfterInterruptedAppend_ShouldTruncateTailAndKeepCompleteRecords() throws Exception {
+
+        AvatarPackStore store = openStore(Duration.ZERO);
+        StoredContent stored = store.append(content(1));
+        store.close();
+        Path segment = segmentFiles().get(0);
+        long completeSize = Files.size(segment);
+        // Заголовок следующей записи обещает 100 байт, но до сбоя успели записаться только 10
+        ByteBuffer tail = ByteBuffer.allocate(40 + 10).putInt(0x41565031).put(new byte[32]).putInt(100);
+        Files.write(segment, tail.array(), StandardOpenOption.APPEND);
+
+
+        AvatarPackStore reopened = openStore(Duration.ZERO);
+        StoredContent appended = reopened.append(content(2));
+
+
+        assertArrayEquals(bytes(1), read(reopened, stored.hash()));
+        assertArrayEquals(bytes(2), read(reopened, appended.hash()));
+        assertEquals(completeSize + 40 + 100, Files.size(segment));
+    }
+
+    @Test
+    void compact_ShouldMoveReferencedRecordsAndDropUnreferenced() throws Exception {
+
+        AvatarPackStore store = openStore(Duration.ZERO);
+        StoredContent kept = store.append(content(1));
+        StoredContent dropped = store.append(content(2));
+        StoredContent active = store.append(content(3));
+        Path sealedSegment = segmentFiles().get(0);
+        when(avatarRepository.findExistingDigests(any())).thenReturn(List.of(kept.hash()));
+
+
+        store.compact();
+
+
+        assertFalse(Files.exists(sealedSegment));
+        assertArrayEquals(bytes(1), read(store, kept.hash()));
+        assertEquals(Optional.empty(), store.read(dropped.hash()));
+        assertArrayEquals(bytes(3), read(store, active.hash()));
+    }
+
+    @Test
+    void compact_ShouldKeepRecentRecordsWhoseRowsAreNotCommittedYet() throws Exception {
+
+        AvatarPackStore store = openStore(Duration.ofHours(1));
+        StoredContent inFlight = store.append(content(1));
+        store.append(content(2));
+        store.append(content(3));
+        Path sealedSegment = segmentFiles().get(0);
+        when(avatarRepository.findExistingDigests(any())).thenReturn(List.of());
+
+
+        store.compact();
+
+
+        assertTrue(Files.exists(sealedSegment));
+        assertArrayEquals(bytes(1), read(store, inFlight.hash()));
+    }
+
+    private AvatarPackStore openStore(Duration compactionGrace) throws Exception {
+        AvatarStore avatarStore = new AvatarStore(mock(AvatarContentRepository.class), avatarsDir.toString());
+        AvatarPackStore store = new AvatarPackStore(avatarRepository, avatarStore, avatarsDir.toString(),
+                SEGMENT_SIZE, 0.9, compactionGrace);
+        store.open();
+        openStores.add(store);
+        return store;
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (var files = Files.list(avatarsDir.resolve("packs"))) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static byte[] read(AvatarPackStore store, String hash) throws Exception {
+        ByteBuffer buffer = store.read(hash).orElseThrow();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static ByteArrayInputStream content(int value) {
+        return new ByteArrayInputStream(bytes(value));
+    }
+
+    private static byte[] bytes(int value) {
+        byte[] bytes = new byte[100];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
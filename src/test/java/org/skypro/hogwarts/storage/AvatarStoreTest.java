@@ -0,0 +1,108 @@
+package org.skypro.hogwarts.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.skypro.hogwarts.repository.AvatarContentRepository;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvatarStoreTest {
+    private static final byte[] CONTENT = {1, 2, 3, 4, 5};
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarContentRepository avatarContentRepository = mock(AvatarContentRepository.class);
+
+    @Test
+    void store_ShouldPlaceContentInShardedPathByHash() throws Exception {
+
+        AvatarStore avatarStore = newStore();
+
+
+        StoredContent stored = avatarStore.store(new ByteArrayInputStream(CONTENT));
+
+
+        String hash = stored.hash();
+        assertEquals(64, hash.length());
+        assertEquals(avatarsDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash), stored.path());
+        assertEquals(CONTENT.length, stored.size());
+        assertArrayEquals(CONTENT, Files.readAllBytes(stored.path()));
+        verify(avatarContentRepository).acquire(hash, CONTENT.length);
+        assertTempDirEmpty();
+    }
+
+    @Test
+    void store_WhenContentAlreadyStored_ShouldKeepOneFileAndCountReference() throws Exception {
+
+        AvatarStore avatarStore = newStore();
+        StoredContent first = avatarStore.store(new ByteArrayInputStream(CONTENT));
+        Instant old = Instant.now().minus(1, ChronoUnit.DAYS);
+        Files.setLastModifiedTime(first.path(), FileTime.from(old));
+
+
+        StoredContent second = avatarStore.store(new ByteArrayInputStream(CONTENT));
+
+
+        assertEquals(first.path(), second.path());
+        verify(avatarContentRepository, times(2)).acquire(first.hash(), CONTENT.length);
+        // Свежее время изменения защищает файл от удаления как осиротевшего
+        assertTrue(Files.getLastModifiedTime(second.path()).toInstant().isAfter(old));
+        try (Stream<Path> files = Files.list(first.path().getParent())) {
+            assertEquals(1, files.count());
+        }
+        assertTempDirEmpty();
+    }
+
+    @Test
+    void release_WhenLastReferenceIsGone_ShouldDeleteFileAndVariants() throws Exception {
+
+        AvatarStore avatarStore = newStore();
+        StoredContent stored = avatarStore.store(new ByteArrayInputStream(CONTENT));
+        Path variant = avatarStore.createTempFile();
+        avatarStore.storeVariant(stored.hash(), 128, variant);
+        avatarStore.markVariantSkipped(stored.hash(), 256);
+        when(avatarContentRepository.deleteIfUnreferenced(stored.hash())).thenReturn(1);
+
+
+        avatarStore.release(stored.hash());
+
+
+        verify(avatarContentRepository).decrementRefCount(stored.hash());
+        assertFalse(Files.exists(stored.path()));
+        assertFalse(Files.exists(avatarStore.resolveVariant(stored.hash(), 128)));
+        assertFalse(Files.exists(avatarStore.resolveVariantMarker(stored.hash(), 256)));
+    }
+
+    @Test
+    void release_WhenContentIsStillReferenced_ShouldKeepFile() throws Exception {
+
+        AvatarStore avatarStore = newStore();
+        StoredContent stored = avatarStore.store(new ByteArrayInputStream(CONTENT));
+        when(avatarContentRepository.deleteIfUnreferenced(stored.hash())).thenReturn(0);
+
+
+        avatarStore.release(stored.hash());
+
+
+        verify(avatarContentRepository).decrementRefCount(stored.hash());
+        assertTrue(Files.exists(stored.path()));
+    }
+
+    private AvatarStore newStore() {
+        return new AvatarStore(avatarContentRepository, avatarsDir.toString());
+    }
+
+    private void assertTempDirEmpty() throws Exception {
+        try (Stream<Path> files = Files.list(avatarsDir.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+}
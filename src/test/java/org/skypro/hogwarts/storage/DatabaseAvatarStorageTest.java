@@ -0,0 +1,201 @@
+package org.skypro.hogwarts.storage;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.skypro.hogwarts.model.Avatar;
+import org.skypro.hogwarts.repository.AvatarRepository;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import javax.sql.rowset.serial.SerialBlob;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class DatabaseAvatarStorageTest {
+    private static final byte[] CONTENT = {1, 2, 3, 4, 5};
+
+    private final AvatarRepository avatarRepository = mock(AvatarRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TransactionStatus transaction = mock(TransactionStatus.class);
+    private final DatabaseAvatarStorage storage = new DatabaseAvatarStorage(avatarRepository, transactionManager);
+
+    @Test
+    void readFromDatabase_WhenAvatarHasNoData_ShouldReturnEmpty() {
+
+        Avatar avatar = avatar(null);
+
+
+        Optional<Resource> resource = storage.readFromDatabase(avatar);
+
+
+        assertTrue(resource.isEmpty());
+    }
+
+    @Test
+    void readFromDatabase_ShouldNotReadLobUntilStreamIsOpened() throws Exception {
+
+        Avatar avatar = avatar(new SerialBlob(CONTENT));
+
+
+        Resource resource = storage.readFromDatabase(avatar).orElseThrow();
+
+
+        assertEquals(CONTENT.length, resource.contentLength());
+        verifyNoInteractions(avatarRepository, transactionManager);
+    }
+
+    @Test
+    void getInputStream_ShouldHoldReadOnlyTransactionUntilStreamIsClosed() throws Exception {
+
+        Avatar avatar = avatar(new SerialBlob(CONTENT));
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(avatarRepository.findById(1L)).thenReturn(Optional.of(avatar));
+        Resource resource = storage.readFromDatabase(avatar).orElseThrow();
+
+
+        InputStream in = resource.getInputStream();
+        byte[] read = in.readAllBytes();
+        verify(transactionManager, never()).commit(any());
+        in.close();
+        in.close();
+
+
+        assertArrayEquals(CONTENT, read);
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        verify(transactionManager, times(1)).commit(transaction);
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    void getInputStream_WhenAvatarWasDeleted_ShouldRollBackAndThrowFileNotFound() throws Exception {
+
+        Avatar avatar = avatar(new SerialBlob(CONTENT));
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(avatarRepository.findById(1L)).thenReturn(Optional.empty());
+        Resource resource = storage.readFromDatabase(avatar).orElseThrow();
+
+
+        assertThrows(FileNotFoundException.class, resource::getInputStream);
+
+
+        verify(transactionManager).rollback(transaction);
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void getInputStream_WhenLobCannotBeOpened_ShouldRollBackAndThrowIOException() throws Exception {
+
+        Blob broken = mock(Blob.class);
+        when(broken.getBinaryStream()).thenThrow(new SQLException("LOB удален"));
+        Avatar avatar = avatar(broken);
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(avatarRepository.findById(1L)).thenReturn(Optional.of(avatar));
+        Resource resource = storage.readFromDatabase(avatar).orElseThrow();
+
+
+        IOException e = assertThrows(IOException.class, resource::getInputStream);
+
+
+        assertInstanceOf(SQLException.class, e.getCause());
+        verify(transactionManager).rollback(transaction);
+    }
+
+    @Test
+    void save_ShouldStoreSizeDigestAndStreamedLob() throws Exception {
+
+        AtomicReference<byte[]> saved = new AtomicReference<>();
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> {
+            Avatar avatar = invocation.getArgument(0);
+            // Прокси LOB читает временный файл, поэтому содержимое доступно только во время save
+            try (InputStream in = avatar.getData().getBinaryStream()) {
+                saved.set(in.readAllBytes());
+            }
+            return avatar;
+        });
+        Avatar avatar = new Avatar();
+        avatar.setFilePath("old/path");
+
+
+        Avatar result = storage.save(avatar, new ByteArrayInputStream(CONTENT));
+
+
+        assertArrayEquals(CONTENT, saved.get());
+        assertEquals(CONTENT.length, result.getFileSize());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT)),
+                result.getContentDigest());
+        assertNull(result.getFilePath());
+        verify(avatarRepository, never()).unlinkData(any());
+    }
+
+    @Test
+    void save_WhenAvatarIsReplaced_ShouldUnlinkPreviousLobInSameTransaction() throws Exception {
+
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Avatar avatar = avatar(new SerialBlob(new byte[]{9}));
+
+
+        storage.save(avatar, new ByteArrayInputStream(CONTENT));
+
+
+        InOrder order = inOrder(transactionManager, avatarRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(avatarRepository).unlinkData(1L);
+        order.verify(avatarRepository).save(avatar);
+        order.verify(transactionManager).commit(transaction);
+    }
+
+    @Test
+    void prepare_ShouldStageContentUntilPreparedLobIsFreed() throws Exception {
+
+        Avatar avatar = new Avatar();
+        avatar.setFilePath("old/path");
+        long stagedBefore = countStagedFiles();
+
+
+        storage.prepare(avatar, new ByteArrayInputStream(CONTENT));
+        long stagedWhilePrepared = countStagedFiles();
+        byte[] read;
+        try (InputStream in = avatar.getData().getBinaryStream()) {
+            read = in.readAllBytes();
+        }
+        avatar.getData().free();
+
+
+        assertArrayEquals(CONTENT, read);
+        assertEquals(CONTENT.length, avatar.getFileSize());
+        assertNull(avatar.getFilePath());
+        assertEquals(stagedBefore + 1, stagedWhilePrepared);
+        assertEquals(stagedBefore, countStagedFiles());
+        verifyNoInteractions(avatarRepository, transactionManager);
+    }
+
+    private static long countStagedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("avatar-")
+                    && file.getFileName().toString().endsWith(".part")).count();
+        }
+    }
+
+    private static Avatar avatar(Blob data) {
+        Avatar avatar = new Avatar(null, CONTENT.length, "image/png", data, null);
+        avatar.setId(1L);
+        return avatar;
+    }
+}